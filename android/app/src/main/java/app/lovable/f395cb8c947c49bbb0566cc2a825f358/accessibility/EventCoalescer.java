@@ -0,0 +1,117 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.accessibility;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.SparseArray;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+/**
+ * Merges bursts of accessibility events per window. Each new event restarts the window's quiet
+ * period; once it elapses (or the burst has lasted {@code maxDelayMs}) the listener is called
+ * once for the settled screen. Runs entirely on the looper it was created with.
+ *
+ * <p>While every merged event comes from the same source node, that node is handed to the listener
+ * so it can check the subtree before reading the window again; otherwise the listener gets null
+ * and reads the window.
+ */
+final class EventCoalescer {
+
+    interface Listener {
+        /** Takes ownership of {@code source}, which is null when the whole window should be read. */
+        void onScreenSettled(int windowId, String packageName, AccessibilityNodeInfo source, int mergedEvents);
+    }
+
+    private final Handler handler;
+    private final Listener listener;
+    private final long quietPeriodMs;
+    private final long maxDelayMs;
+    private final SparseArray<Pending> pending = new SparseArray<>();
+
+    private long settledScreens;
+    private long mergedEvents;
+
+    EventCoalescer(Looper looper, long quietPeriodMs, long maxDelayMs, Listener listener) {
+        this.handler = new Handler(looper);
+        this.quietPeriodMs = quietPeriodMs;
+        this.maxDelayMs = maxDelayMs;
+        this.listener = listener;
+    }
+
+    /** Takes ownership of {@code source}; pass null when the whole window changed. */
+    void onEvent(int windowId, String packageName, AccessibilityNodeInfo source) {
+        long now = SystemClock.uptimeMillis();
+        Pending p = pending.get(windowId);
+        if (p == null) {
+            p = new Pending(windowId, now);
+            p.source = source;
+            p.wholeWindow = source == null;
+            pending.put(windowId, p);
+        } else {
+            handler.removeCallbacks(p);
+            p.merged++;
+            p.mergeSource(source);
+        }
+        p.packageName = packageName;
+        // Never postpone past maxDelayMs, so a screen that animates forever is still read
+        long deadline = Math.min(now + quietPeriodMs, p.firstEventAt + maxDelayMs);
+        handler.postAtTime(p, Math.max(deadline, now));
+    }
+
+    long settledScreens() {
+        return settledScreens;
+    }
+
+    long mergedEvents() {
+        return mergedEvents;
+    }
+
+    void cancel() {
+        for (int i = 0; i < pending.size(); i++) {
+            Pending p = pending.valueAt(i);
+            handler.removeCallbacks(p);
+            if (p.source != null) p.source.recycle();
+        }
+        pending.clear();
+    }
+
+    private final class Pending implements Runnable {
+        final int windowId;
+        final long firstEventAt;
+        String packageName;
+        AccessibilityNodeInfo source;
+        boolean wholeWindow;
+        int merged;
+
+        Pending(int windowId, long firstEventAt) {
+            this.windowId = windowId;
+            this.firstEventAt = firstEventAt;
+        }
+
+        void mergeSource(AccessibilityNodeInfo next) {
+            if (wholeWindow) {
+                if (next != null) next.recycle();
+                return;
+            }
+            if (next != null && next.equals(source)) {
+                // Same node: keep the fresher copy
+                source.recycle();
+                source = next;
+                return;
+            }
+            // Different subtrees (or a window-level change) changed: read the whole window
+            if (source != null) source.recycle();
+            if (next != null) next.recycle();
+            source = null;
+            wholeWindow = true;
+        }
+
+        @Override
+        public void run() {
+            pending.remove(windowId);
+            settledScreens++;
+            mergedEvents += merged;
+            listener.onScreenSettled(windowId, packageName, source, merged);
+        }
+    }
+}
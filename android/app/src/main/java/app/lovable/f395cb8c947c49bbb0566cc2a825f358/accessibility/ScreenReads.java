@@ -0,0 +1,40 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.accessibility;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The text last read from each window, used to decide when a window must be read and parsed again.
+ *
+ * <p>A change confined to one subtree only triggers a read of the window when the subtree shows
+ * text the last read did not have; the window is then parsed whole, because the amount and the
+ * words that make it a transfer often sit in sibling views. Windows are keyed by id alone, which
+ * stays stable while node objects are refreshed and recycled. At most {@link #MAX_WINDOWS} are
+ * tracked, least recently used evicted first.
+ */
+final class ScreenReads {
+    static final int MAX_WINDOWS = 64;
+
+    // Texts are stored with a leading space; the collector ends every node's text with one
+    private final Map<Integer, String> lastText = new LinkedHashMap<Integer, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+            return size() > MAX_WINDOWS;
+        }
+    };
+
+    /**
+     * True when {@code subtreeText}, as collected by {@link ScreenTextCollector}, is not already
+     * part of the last read of the window, node for node.
+     */
+    boolean showsNewText(int windowId, String subtreeText) {
+        String last = lastText.get(windowId);
+        return last == null || !last.contains(" " + subtreeText);
+    }
+
+    /** Records a read of the whole window; false when it reads exactly as last time. */
+    boolean record(int windowId, String windowText) {
+        String text = " " + windowText;
+        return !text.equals(lastText.put(windowId, text));
+    }
+}
@@ -0,0 +1,97 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.accessibility;
+
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import java.util.Arrays;
+
+/**
+ * Iterative, budgeted walk over an accessibility subtree that collects node text and content
+ * descriptions in document order. The walk stops after {@link #MAX_NODES} nodes and does not
+ * descend below {@link #MAX_DEPTH}. Each node's text ends with a space, so a subtree's text can be
+ * looked for in a window's text node for node. Reuses its buffers, so one instance serves one
+ * thread.
+ */
+final class ScreenTextCollector {
+    static final int MAX_NODES = 1500;
+    static final int MAX_DEPTH = 40;
+
+    private final StringBuilder text = new StringBuilder(1024);
+    // Explicit stack of pending nodes and their depths
+    private AccessibilityNodeInfo[] stack = new AccessibilityNodeInfo[64];
+    private int[] depths = new int[64];
+    private int top;
+
+    private int visitedNodes;
+    private boolean truncated;
+
+    /** Walks the subtree under {@code root}; the root itself stays owned by the caller. */
+    void collect(AccessibilityNodeInfo root) {
+        text.setLength(0);
+        visitedNodes = 0;
+        truncated = false;
+        if (root != null) walk(root);
+    }
+
+    String text() {
+        return text.toString();
+    }
+
+    int visitedNodes() {
+        return visitedNodes;
+    }
+
+    boolean truncated() {
+        return truncated;
+    }
+
+    private void walk(AccessibilityNodeInfo root) {
+        push(root, 0);
+        while (top > 0) {
+            top--;
+            AccessibilityNodeInfo node = stack[top];
+            int depth = depths[top];
+            stack[top] = null;
+            try {
+                if (visitedNodes >= MAX_NODES) {
+                    truncated = true;
+                    continue; // still drain the stack so every obtained child is recycled
+                }
+                visitedNodes++;
+                appendTrimmed(node.getText());
+                appendTrimmed(node.getContentDescription());
+
+                if (depth >= MAX_DEPTH) {
+                    if (node.getChildCount() > 0) truncated = true;
+                    continue;
+                }
+                // Push in reverse so children are visited in order
+                for (int i = node.getChildCount() - 1; i >= 0; i--) {
+                    AccessibilityNodeInfo child = node.getChild(i);
+                    if (child != null) push(child, depth + 1);
+                }
+            } finally {
+                if (node != root) node.recycle();
+            }
+        }
+    }
+
+    private void push(AccessibilityNodeInfo node, int depth) {
+        if (top == stack.length) {
+            stack = Arrays.copyOf(stack, top * 2);
+            depths = Arrays.copyOf(depths, top * 2);
+        }
+        stack[top] = node;
+        depths[top] = depth;
+        top++;
+    }
+
+    private void appendTrimmed(CharSequence cs) {
+        if (cs == null) return;
+        int start = 0;
+        int end = cs.length();
+        while (start < end && cs.charAt(start) <= ' ') start++;
+        while (end > start && cs.charAt(end - 1) <= ' ') end--;
+        if (start == end) return;
+        text.append(cs, start, end).append(' ');
+    }
+}
@@ -2,21 +2,54 @@ package app.lovable.f395cb8c947c49bbb0566cc2a825f358.notifications;
 
 import android.service.notification.NotificationListenerService;
 import android.service.notification.StatusBarNotification;
-import android.app.Notification;
-import android.os.Bundle;
 import android.content.Intent;
-import android.text.TextUtils;
 import android.os.Build;
 import android.util.Log;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+
+import app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture.CapturedTransaction;
+import app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture.FinancialPreFilter;
+import app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture.NotificationClassifier;
+import app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture.ProfileRegistry;
+import app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture.RepostFilter;
 
 public class BankNotificationListenerService extends NotificationListenerService {
-	public static final String ACTION_NEW_BANK_EVENT = "app.lovable.BANK_NOTIFICATION_EVENT";
-	private static final String QUEUE_PREF = "bank_events_queue";
-	private static final String QUEUE_KEY = "events";
 	private static final String TAG = "BankNotificationListener";
+	// Comfortably more than the notifications one device keeps in the shade
+	private static final int MAX_TRACKED_NOTIFICATIONS = 256;
+	// Notifications per catch-up task, so a full shade neither floods a lane nor holds it for long
+	private static final int CATCH_UP_BATCH = 16;
+
+	private NotificationIngest ingest;
+	private FinancialPreFilter preFilter;
+	private NotificationClassifier classifier;
+	private final RepostFilter reposts = new RepostFilter(MAX_TRACKED_NOTIFICATIONS);
+	private CatchUpMarks marks;
+
+	@Override
+	public void onCreate() {
+		super.onCreate();
+		ProfileRegistry profiles = BankProfileLoader.registry(this);
+		preFilter = new FinancialPreFilter(getPackageName(), profiles);
+		classifier = new NotificationClassifier(profiles);
+		marks = new CatchUpMarks(this);
+		ingest = new NotificationIngest(this::process);
+	}
+
+	@Override
+	public void onDestroy() {
+		if (ingest != null) ingest.shutdown();
+		if (preFilter != null) {
+			Log.d(TAG, "Pre-filter accepted " + preFilter.acceptedCount() + ", rejected " + preFilter.rejectedCount());
+		}
+		Log.d(TAG, "Skipped " + reposts.skippedCount() + " unchanged reposts");
+		super.onDestroy();
+	}
 
 	@Override
 	public void onListenerConnected() {
@@ -25,26 +58,91 @@ public class BankNotificationListenerService extends NotificationListenerService
 		
 		// Start foreground service to keep this service alive
 		startForegroundService();
+
+		// Recover the journal and rebuild its dedupe index before seeding
+		try {
+			CaptureJournal.get(this);
+		} catch (Throwable e) {
+			Log.e(TAG, "Failed to open event journal", e);
+		}
 		
-		// Seed from active notifications
+		// Catch up on active notifications not processed yet; snapshots and parsing happen on the ingest worker
 		try {
 			StatusBarNotification[] actives = getActiveNotifications();
-			if (actives != null) {
-				Log.d(TAG, "Processing " + actives.length + " active notifications");
-				for (StatusBarNotification sbn : actives) {
-					persistIfTransaction(sbn);
-				}
-			}
+			if (actives != null) catchUp(actives);
 		} catch (Throwable e) {
 			Log.e(TAG, "Error processing active notifications", e);
 		}
 	}
 
+	/**
+	 * Queues the active notifications posted after their package's high-water mark, oldest first,
+	 * in batches of {@link #CATCH_UP_BATCH} on the package's ingest lane. The rest were processed
+	 * before the last disconnect and are skipped without reading their extras.
+	 */
+	private void catchUp(StatusBarNotification[] actives) {
+		marks.releaseHolds();
+		Map<String, List<StatusBarNotification>> pending = new HashMap<>();
+		int skipped = 0;
+		for (StatusBarNotification sbn : actives) {
+			if (sbn == null) continue;
+			String pkg = sbn.getPackageName();
+			if (sbn.getPostTime() <= marks.get(pkg)) {
+				skipped++;
+				continue;
+			}
+			List<StatusBarNotification> forPackage = pending.get(pkg);
+			if (forPackage == null) {
+				forPackage = new ArrayList<>();
+				pending.put(pkg, forPackage);
+			}
+			forPackage.add(sbn);
+		}
+
+		int queued = 0;
+		for (Map.Entry<String, List<StatusBarNotification>> e : pending.entrySet()) {
+			String pkg = e.getKey();
+			List<StatusBarNotification> posts = e.getValue();
+			Collections.sort(posts, (a, b) -> Long.compare(a.getPostTime(), b.getPostTime()));
+			for (int from = 0; from < posts.size(); from += CATCH_UP_BATCH) {
+				List<StatusBarNotification> batch = posts.subList(from, Math.min(from + CATCH_UP_BATCH, posts.size()));
+				if (!ingest.submit(pkg, () -> catchUpBatch(batch))) {
+					// Lane full; the rest waits for the next catch-up
+					marks.holdBelow(pkg, batch.get(0).getPostTime());
+					break;
+				}
+				queued += batch.size();
+			}
+		}
+		Log.d(TAG, "Catch-up queued " + queued + " of " + actives.length + " active notifications, "
+			+ skipped + " already processed");
+	}
+
+	// Runs on an ingest worker thread
+	private void catchUpBatch(List<StatusBarNotification> batch) {
+		for (StatusBarNotification sbn : batch) {
+			NotificationSnapshot snapshot = NotificationSnapshot.of(sbn, preFilter);
+			if (snapshot != null) {
+				process(snapshot);
+			} else {
+				marks.advance(sbn.getPackageName(), sbn.getPostTime());
+			}
+		}
+	}
+
 	@Override
 	public void onNotificationPosted(StatusBarNotification sbn) {
-		if (sbn == null) return;
-		Log.d(TAG, "New notification from: " + sbn.getPackageName());
-		persistIfTransaction(sbn);
+		// Reject non-financial notifications before copying anything; the rest is parsed on the ingest worker
+		NotificationSnapshot snapshot = NotificationSnapshot.of(sbn, preFilter);
+		if (snapshot == null) return;
+		Log.d(TAG, "New notification from: " + snapshot.packageName);
+		if (!ingest.submit(snapshot)) marks.holdBelow(snapshot.packageName, snapshot.postTime);
+	}
+
+	@Override
+	public void onNotificationRemoved(StatusBarNotification sbn) {
+		// A later post under this key is a new notification, not an update
+		if (sbn != null) reposts.forget(sbn.getPackageName(), sbn.getId(), sbn.getTag());
 	}
 	
 	private void startForegroundService() {
@@ -60,245 +158,43 @@ public class BankNotificationListenerService extends NotificationListenerService
 		}
 	}
 
-	private void persistIfTransaction(StatusBarNotification sbn) {
-		Notification notification = sbn.getNotification();
-		if (notification == null) return;
-		Bundle extras = notification.extras;
-		if (extras == null) return;
-		
-		// Debug: Log all notifications to help identify the correct package
-		Log.d(TAG, "=== New Notification Debug ===");
-		Log.d(TAG, "Package: " + sbn.getPackageName());
-		Log.d(TAG, "App Name: " + sbn.getPackageName());
-		Log.d(TAG, "Notification ID: " + sbn.getId());
-		Log.d(TAG, "Post Time: " + sbn.getPostTime());
-
-		CharSequence titleCs = extras.getCharSequence(Notification.EXTRA_TITLE);
-		CharSequence textCs = extras.getCharSequence(Notification.EXTRA_TEXT);
-		CharSequence bigTextCs = extras.getCharSequence(Notification.EXTRA_BIG_TEXT);
-		CharSequence[] lines = extras.getCharSequenceArray(Notification.EXTRA_TEXT_LINES);
-
-		String title = titleCs != null ? titleCs.toString() : "";
-		String text = textCs != null ? textCs.toString() : "";
-		String bigText = bigTextCs != null ? bigTextCs.toString() : "";
-		
-		// Debug: Log notification content
-		Log.d(TAG, "Title: " + title);
-		Log.d(TAG, "Text: " + text);
-		Log.d(TAG, "BigText: " + bigText);
-
-		StringBuilder sb = new StringBuilder();
-		if (!TextUtils.isEmpty(bigText)) sb.append(bigText).append(' ');
-		if (!TextUtils.isEmpty(text)) sb.append(text).append(' ');
-		if (lines != null) {
-			for (CharSequence l : lines) {
-				if (l != null) sb.append(l).append(' ');
-			}
-		}
-		String content = sb.toString().trim();
-
-		BankTransaction tx = parseTransaction(title, content, sbn.getPackageName());
-		if (tx == null) return;
-
-		// stable key for dedupe
-		String eventKey = sbn.getPackageName() + ":" + sbn.getId() + ":" + sbn.getPostTime();
-		enqueueEvent(tx, eventKey);
-
-		// Also broadcast if app is running to update UI immediately
-		Intent intent = new Intent(ACTION_NEW_BANK_EVENT);
-		intent.putExtra("id", tx.id);
-		intent.putExtra("type", tx.type);
-		intent.putExtra("amount", tx.amount);
-		intent.putExtra("date", tx.dateMs);
-		intent.putExtra("contact", tx.contact);
-		intent.putExtra("description", tx.description);
-		sendBroadcast(intent);
-	}
-
-	private void enqueueEvent(BankTransaction tx, String eventKey) {
+	// Runs on an ingest worker thread
+	private void process(NotificationSnapshot snapshot) {
 		try {
-			android.content.SharedPreferences prefs = getSharedPreferences(QUEUE_PREF, MODE_PRIVATE);
-			String raw = prefs.getString(QUEUE_KEY, "[]");
-			org.json.JSONArray arr = new org.json.JSONArray(raw);
-			// dedupe by eventKey
-			for (int i = 0; i < arr.length(); i++) {
-				org.json.JSONObject o = arr.getJSONObject(i);
-				if (eventKey.equals(o.optString("eventKey"))) return;
-			}
-			org.json.JSONObject obj = new org.json.JSONObject();
-			obj.put("eventKey", eventKey);
-			obj.put("id", tx.id);
-			obj.put("type", tx.type);
-			obj.put("amount", tx.amount);
-			obj.put("date", tx.dateMs);
-			obj.put("contact", tx.contact);
-			obj.put("description", tx.description);
-			arr.put(obj);
-			prefs.edit().putString(QUEUE_KEY, arr.toString()).apply();
-		} catch (Throwable ignored) {}
-	}
-
-	private BankTransaction parseTransaction(String title, String content, String pkg) {
-		if (content == null) return null;
-		String normalized = normalize(content);
-		String normalizedTitle = normalize(title);
-		String nl = normalized.toLowerCase(java.util.Locale.ROOT);
-		String tl = normalizedTitle != null ? normalizedTitle.toLowerCase(java.util.Locale.ROOT) : "";
-
-		// Enhanced detection for financial notifications
-		boolean looksLikePix = nl.contains("pix") || nl.contains("transferencia") || nl.contains("transferência") || 
-						   tl.contains("pix") || nl.contains("ted") || nl.contains("doc") || 
-						   nl.contains("pagamento") || nl.contains("recebimento") ||
-						   nl.contains("débito") || nl.contains("crédito") || nl.contains("saque") ||
-						   nl.contains("depósito") || nl.contains("deposito");
-		boolean hasAmount = extractAmountBRL(nl + " " + tl) > 0;
-		boolean isC6 = isLikelyC6(pkg, tl);
-		
-		Log.d(TAG, String.format("Notification analysis - Package: %s, LooksPix: %b, HasAmount: %b, IsC6: %b", 
-			pkg, looksLikePix, hasAmount, isC6));
-		
-		// Accept ANY notification with PIX keywords and amount, regardless of package
-		if (looksLikePix && hasAmount) {
-			Log.d(TAG, "✓ Accepting PIX notification from: " + pkg);
-		} else {
-			Log.d(TAG, "✗ Rejecting notification - LooksPix: " + looksLikePix + ", HasAmount: " + hasAmount);
-			return null;
+			persistIfTransaction(snapshot);
+		} finally {
+			// Also past a notification that failed to parse: it would fail again on every reconnect
+			marks.advance(snapshot.packageName, snapshot.postTime);
 		}
-
-		String type = null;
-		if (nl.contains("pix enviado") || nl.contains("enviado") || nl.contains("debito") || nl.contains("débito")) {
-			type = "sent";
-		}
-		if (type == null && (nl.contains("pix recebido") || nl.contains("recebido") || nl.contains("credito") || nl.contains("crédito") || nl.contains("recebido(a) de"))) {
-			type = "received";
-		}
-		if (type == null) return null;
-
-		double amount = extractAmountBRL(nl + " " + tl); // Check both content and title for amount
-		long now = System.currentTimeMillis();
-		String contact = extractContact(normalized);
-		String description = !TextUtils.isEmpty(title) ? title : "PIX";
-
-		BankTransaction tx = new BankTransaction();
-		tx.id = now + "-" + Math.abs(normalized.hashCode());
-		tx.type = type;
-		tx.amount = amount;
-		tx.dateMs = now;
-		tx.contact = contact;
-		tx.description = description;
-		return tx;
 	}
 
-	private boolean isLikelyC6(String pkg, String title) {
-		if (pkg == null) pkg = "";
-		pkg = pkg.toLowerCase();
-		
-		// Debug: Always log package analysis
-		Log.d(TAG, "Analyzing package: " + pkg + ", title: " + title);
-		
-		// Enhanced C6 Bank package detection - be more permissive for testing
-		if (pkg.contains("c6bank") || pkg.equals("com.c6bank.app") || 
-			pkg.equals("com.c6bank") || pkg.contains("banco.c6") ||
-			pkg.contains("bancointer") || pkg.contains("inter") ||
-			pkg.contains("c6") || pkg.contains("bank")) {
-			Log.d(TAG, "✓ Detected bank package: " + pkg);
-			return true;
-		}
-		
-		// Check title for bank indicators
-		if (title != null) {
-			String tl = title.toLowerCase();
-			if (tl.contains("c6") || tl.contains("banco c6") || tl.contains("inter") ||
-				tl.contains("pix") || tl.contains("transferência") || tl.contains("transferencia")) {
-				Log.d(TAG, "✓ Detected bank keywords in title: " + title);
-				return true;
-			}
+	private void persistIfTransaction(NotificationSnapshot snapshot) {
+		long digest = RepostFilter.digest(snapshot.title, snapshot.text, snapshot.bigText, snapshot.lines);
+		if (reposts.isRepost(snapshot.packageName, snapshot.id, snapshot.tag, digest)) {
+			Log.d(TAG, "Unchanged repost, skipping parse (" + snapshot.packageName + ":" + snapshot.id + ")");
+			return;
 		}
-		
-		// For debugging: Accept any notification with PIX in content during testing
-		Log.d(TAG, "✗ Not detected as bank notification");
-		return false;
-	}
-
-	private String normalize(String s) {
-		String out = s.replace("\n", " ").replace("\u00a0", " ").trim();
-		while (out.contains("  ")) out = out.replace("  ", " ");
-		return out;
-	}
 
-	private double extractAmountBRL(String text) {
-		// Multiple regex patterns for different BRL formats
-		java.util.List<java.util.regex.Pattern> patterns = new java.util.ArrayList<>();
-		// Standard format: R$ 1.234,56
-		patterns.add(java.util.regex.Pattern.compile("R\\$\\s*([0-9]{1,3}(?:\\.[0-9]{3})*,[0-9]{2})"));
-		// Small amounts: R$ 0,01 to R$ 9,99
-		patterns.add(java.util.regex.Pattern.compile("R\\$\\s*([0-9],[0-9]{2})"));
-		// Without R$: 1.234,56
-		patterns.add(java.util.regex.Pattern.compile("([0-9]{1,3}(?:\\.[0-9]{3})*,[0-9]{2})"));
-		// Simple format: R$ 123,45 or 123,45
-		patterns.add(java.util.regex.Pattern.compile("R?\\$?\\s*([0-9]+,[0-9]{2})"));
-		// Alternative format: R$ 0,01 (explicit small amounts)
-		patterns.add(java.util.regex.Pattern.compile("R\\$\\s*([0-9]+,[0-9]{1,2})"));
-		// International format: R$ 1,234.56 (sometimes used)
-		patterns.add(java.util.regex.Pattern.compile("R\\$\\s*([0-9]{1,3}(?:,[0-9]{3})*\\.[0-9]{2})"));
-		// "valor de" pattern: "valor de R$ 0,01"
-		patterns.add(java.util.regex.Pattern.compile("valor de R\\$\\s*([0-9]+,[0-9]{2})"));
-		
-		for (java.util.regex.Pattern p : patterns) {
-			java.util.regex.Matcher m = p.matcher(text);
-			if (m.find()) {
-				String raw = m.group(1);
-				Log.d(TAG, "Found amount match: " + raw);
-				
-				// Handle different decimal separators
-				String normalized;
-				if (raw.contains(".") && raw.contains(",")) {
-					// Format: 1.234,56
-					normalized = raw.replace(".", "").replace(",", ".");
-				} else if (raw.contains(",") && !raw.contains(".")) {
-					// Format: 123,45
-					normalized = raw.replace(",", ".");
-				} else {
-					// Format: 123.45 or just numbers
-					normalized = raw;
-				}
-				
-				try { 
-					double amount = Double.parseDouble(normalized);
-					if (amount > 0) {
-						Log.d(TAG, "Extracted amount: " + amount);
-						return amount;
-					}
-				} catch (Exception e) {
-					Log.w(TAG, "Failed to parse amount: " + normalized, e);
-				}
-			}
+		Log.d(TAG, "=== New Notification Debug ===");
+		Log.d(TAG, "Package: " + snapshot.packageName);
+		Log.d(TAG, "Notification ID: " + snapshot.id);
+		Log.d(TAG, "Post Time: " + snapshot.postTime);
+
+		// Inbox and summary notifications may hold one payment per line
+		List<CapturedTransaction> batch = classifier.classifyBatch(snapshot.packageName, snapshot.id, snapshot.postTime,
+			snapshot.title, snapshot.text, snapshot.bigText, snapshot.lines, snapshot.groupSummary,
+			System.currentTimeMillis());
+		if (batch.isEmpty()) {
+			Log.d(TAG, "✗ Not a transaction: " + snapshot.packageName);
+			return;
 		}
-		return 0.0;
-	}
+		Log.d(TAG, "✓ Accepting " + batch.size() + " transaction(s) from: " + snapshot.packageName);
 
-	private String extractContact(String text) {
-		List<java.util.regex.Pattern> patterns = new ArrayList<>();
-		patterns.add(java.util.regex.Pattern.compile("(?i)para\\s+([A-Za-zÀ-ÿ'\\s]{2,80})"));
-		patterns.add(java.util.regex.Pattern.compile("(?i)recebido\\(a\\)\\s+de\\s+['\"]?([A-Za-zÀ-ÿ'\\s]{2,80})['\"]?"));
-		patterns.add(java.util.regex.Pattern.compile("(?i)de\\s+['\"]?([A-Za-zÀ-ÿ'\\s]{2,80})['\"]?"));
-		for (java.util.regex.Pattern p : patterns) {
-			java.util.regex.Matcher m = p.matcher(text);
-			if (m.find()) {
-				String name = m.group(1).trim();
-				name = name.replace("…", "").replace("...", "").replaceAll("[.,]$", "").trim();
-				return name;
-			}
+		// Persisted, correlated and published together by the shared ingest consumer
+		if (!CaptureJournal.ingest(this).submit(batch)) {
+			// The next catch-up parses it again
+			Log.w(TAG, "Ingest queue full, dropped " + batch.size() + " capture(s) from " + snapshot.packageName);
+			marks.holdBelow(snapshot.packageName, snapshot.postTime);
 		}
-		return "Desconhecido";
-	}
-
-	static class BankTransaction {
-		String id;
-		String type; // received | sent
-		double amount;
-		long dateMs;
-		String contact;
-		String description;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,123 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.notifications;
+
+import android.content.Context;
+import android.os.FileObserver;
+import android.util.Log;
+
+import org.json.JSONException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture.BankProfile;
+import app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture.BankProfileFile;
+import app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture.BankProfiles;
+import app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture.ProfileRegistry;
+
+/**
+ * Loads the per-bank parsing profiles: the bundled {@code assets/bank_profiles.json}, then an
+ * optional {@code bank_profiles.json} in app storage whose profiles replace bundled ones with the
+ * same id. The override file is watched, and a rewrite is compiled and swapped in without a
+ * restart; a file that fails to parse or compile is logged and the rules in use are kept.
+ */
+public final class BankProfileLoader {
+    private static final String TAG = "BankProfileLoader";
+    static final String FILE_NAME = "bank_profiles.json";
+
+    private static BankProfileLoader instance;
+
+    private final Context app;
+    private final File override;
+    private final ProfileRegistry registry = new ProfileRegistry();
+    private final FileObserver observer;
+    private List<BankProfile.Spec> bundledSpecs;
+    private List<String> bundledHints;
+
+    /** Process-wide profiles, loaded on first use. */
+    public static synchronized ProfileRegistry registry(Context context) {
+        if (instance == null) {
+            instance = new BankProfileLoader(context.getApplicationContext());
+            instance.reload();
+            instance.observer.startWatching();
+        }
+        return instance.registry;
+    }
+
+    private BankProfileLoader(Context app) {
+        this.app = app;
+        this.override = new File(app.getFilesDir(), FILE_NAME);
+        // Watch the directory: the file may not exist yet, and editors replace it by rename
+        int mask = FileObserver.CLOSE_WRITE | FileObserver.MOVED_TO | FileObserver.DELETE | FileObserver.MOVED_FROM;
+        this.observer = new FileObserver(app.getFilesDir().getPath(), mask) {
+            @Override
+            public void onEvent(int event, String path) {
+                if (FILE_NAME.equals(path)) reload();
+            }
+        };
+    }
+
+    private synchronized void reload() {
+        List<BankProfile.Spec> specs = new ArrayList<>();
+        List<String> hints = new ArrayList<>();
+        try {
+            if (bundledSpecs == null) {
+                bundledSpecs = new ArrayList<>();
+                bundledHints = new ArrayList<>();
+                try (InputStream in = app.getAssets().open(FILE_NAME)) {
+                    BankProfileFile.parse(read(in), bundledSpecs, bundledHints);
+                }
+            }
+        } catch (IOException | JSONException e) {
+            Log.e(TAG, "Bundled bank profiles unreadable; using generic rules", e);
+            bundledSpecs = new ArrayList<>();
+            bundledHints = new ArrayList<>();
+        }
+        specs.addAll(bundledSpecs);
+        hints.addAll(bundledHints);
+
+        if (override.exists()) {
+            try (InputStream in = new FileInputStream(override)) {
+                List<BankProfile.Spec> extraSpecs = new ArrayList<>();
+                List<String> extraHints = new ArrayList<>();
+                BankProfileFile.parse(read(in), extraSpecs, extraHints);
+                BankProfiles compiled = BankProfiles.compile(concat(specs, extraSpecs), concat(hints, extraHints));
+                registry.replace(compiled);
+                Log.d(TAG, "Loaded " + compiled.size() + " bank profiles (with " + override.getName() + ")");
+                return;
+            } catch (IOException | JSONException | IllegalArgumentException e) {
+                Log.e(TAG, "Ignoring invalid " + override.getName(), e);
+                // Keep the rules in use unless nothing has been loaded yet
+                if (registry.current() != BankProfiles.EMPTY) return;
+            }
+        }
+
+        try {
+            BankProfiles compiled = BankProfiles.compile(specs, hints);
+            registry.replace(compiled);
+            Log.d(TAG, "Loaded " + compiled.size() + " bank profiles");
+        } catch (IllegalArgumentException e) {
+            Log.e(TAG, "Bundled bank profiles do not compile; using generic rules", e);
+        }
+    }
+
+    private static <T> List<T> concat(List<T> a, List<T> b) {
+        List<T> all = new ArrayList<>(a.size() + b.size());
+        all.addAll(a);
+        all.addAll(b);
+        return all;
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) > 0) out.write(buffer, 0, n);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,59 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.notifications;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+
+/**
+ * Groups transaction payloads bound for the web layer so a burst (a statement digest, several
+ * card approvals) crosses the bridge as one message. A batch is flushed {@code windowMs} after
+ * its first payload, or as soon as it reaches {@code maxBatch}. Runs on the looper it was created
+ * with.
+ */
+final class BridgeBatcher {
+
+    interface Sink {
+        void onBatch(JSArray batch);
+    }
+
+    private final Handler handler;
+    private final long windowMs;
+    private final int maxBatch;
+    private final Sink sink;
+    private final Runnable flush = this::flush;
+
+    private JSArray pending;
+
+    BridgeBatcher(Looper looper, long windowMs, int maxBatch, Sink sink) {
+        this.handler = new Handler(looper);
+        this.windowMs = windowMs;
+        this.maxBatch = maxBatch;
+        this.sink = sink;
+    }
+
+    void add(JSObject payload) {
+        if (pending == null) {
+            pending = new JSArray();
+            handler.postDelayed(flush, windowMs);
+        }
+        pending.put(payload);
+        if (pending.length() >= maxBatch) {
+            handler.removeCallbacks(flush);
+            flush();
+        }
+    }
+
+    void flush() {
+        JSArray batch = pending;
+        pending = null;
+        if (batch != null && batch.length() > 0) sink.onBatch(batch);
+    }
+
+    /** Delivers whatever is pending right away and stops the timer. */
+    void close() {
+        handler.removeCallbacks(flush);
+        flush();
+    }
+}
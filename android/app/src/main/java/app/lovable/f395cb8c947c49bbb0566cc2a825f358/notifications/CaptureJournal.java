@@ -0,0 +1,157 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.notifications;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture.CaptureBus;
+import app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture.CapturePipeline;
+import app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture.CapturedTransaction;
+import app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture.EventJournal;
+import app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture.IngestQueue;
+import app.lovable.f395cb8c947c49bbb0566cc2a825f358.store.TransactionStore;
+
+/**
+ * Android entry point to the shared {@link EventJournal}: opens it under the app's files dir and
+ * moves any events left in the old SharedPreferences queue into it. Also owns the ingest queue
+ * both capture services feed, whose single consumer persists captures and publishes them.
+ */
+public final class CaptureJournal {
+    private static final String TAG = "CaptureJournal";
+    private static final String FILE_NAME = "bank_events.journal";
+    private static final String LEGACY_QUEUE_PREF = "bank_events_queue";
+    private static final String LEGACY_QUEUE_KEY = "events";
+    private static final int INGEST_CAPACITY = 1024;
+
+    private static boolean migrated;
+    private static CapturePipeline pipeline;
+    private static IngestQueue<List<CapturedTransaction>> ingest;
+
+    private CaptureJournal() {}
+
+    public static synchronized EventJournal get(Context context) throws IOException {
+        Context app = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+        EventJournal journal = EventJournal.open(new File(app.getFilesDir(), FILE_NAME));
+        if (!migrated) {
+            migrateLegacyQueue(app, journal);
+            migrated = true;
+        }
+        return journal;
+    }
+
+    /** Returns the process-wide pipeline every capture channel submits to; it also writes the history store. */
+    public static synchronized CapturePipeline pipeline(Context context) throws IOException {
+        if (pipeline == null) pipeline = new CapturePipeline(get(context), TransactionStore.get(context));
+        return pipeline;
+    }
+
+    /**
+     * Returns the process-wide queue both capture services submit to, from any thread. Each item
+     * holds the captures read from one notification or screen, usually just one. A submit to a full
+     * queue is dropped and returns false.
+     */
+    public static synchronized IngestQueue<List<CapturedTransaction>> ingest(Context context) {
+        if (ingest == null) {
+            Context app = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+            ingest = new IngestQueue<>("bank-capture-ingest", INGEST_CAPACITY, batch -> persistAndPublish(app, batch),
+                (batch, e) -> Log.e(TAG, "Failed to ingest " + batch.size() + " captures, first "
+                    + batch.get(0).eventKey, e));
+        }
+        return ingest;
+    }
+
+    // Runs on the ingest consumer thread only
+    private static void persistAndPublish(Context context, List<CapturedTransaction> batch) {
+        CapturePipeline.Outcome[] outcomes;
+        try {
+            // dedupe by eventKey, then collapse with another channel's capture of the same payment
+            outcomes = pipeline(context).submitAll(batch);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to persist " + batch.size() + " captures, first " + batch.get(0).eventKey, e);
+            return;
+        }
+        for (int i = 0; i < outcomes.length; i++) {
+            CapturedTransaction tx = batch.get(i);
+            switch (outcomes[i]) {
+                case DUPLICATE:
+                    Log.d(TAG, "Duplicate capture avoided: " + tx.eventKey);
+                    continue;
+                case MERGED:
+                    Log.d(TAG, "Merged " + tx.provenance() + " capture into " + tx.correlatedWith);
+                    continue;
+                default:
+                    break;
+            }
+            // Update the UI right away if the app is running; otherwise the journal feed delivers it later.
+            // Published back to back, a batch lands in one bridge message.
+            if (!CaptureBus.get().publish(tx)) Log.d(TAG, "No subscriber, capture left in the journal feed");
+        }
+    }
+
+    /** Largest page the web layer can ask for, keeping each bridge message bounded. */
+    public static final int MAX_PAGE_SIZE = 200;
+
+    /** Reads one page of the change feed in the shape the web layer expects. */
+    public static JSObject readSinceAsJson(Context context, long cursor, int limit) throws IOException {
+        EventJournal.Page page = get(context).readSince(cursor, Math.min(limit, MAX_PAGE_SIZE));
+        JSArray events = new JSArray();
+        for (CapturedTransaction tx : page.events) {
+            JSObject obj = toPayload(tx);
+            obj.put("eventKey", tx.eventKey);
+            events.put(obj);
+        }
+        JSObject ret = new JSObject();
+        ret.put("events", events);
+        ret.put("cursor", page.cursor);
+        ret.put("hasMore", page.hasMore);
+        return ret;
+    }
+
+    public static JSObject toPayload(CapturedTransaction tx) {
+        JSObject payload = new JSObject();
+        payload.put("id", tx.id);
+        payload.put("type", tx.type);
+        payload.put("amount", tx.amount());
+        payload.put("amountCents", tx.amountCents);
+        payload.put("date", tx.dateMs);
+        payload.put("contact", tx.contact);
+        payload.put("description", tx.description);
+        if (tx.category != null) payload.put("category", tx.category);
+        if (tx.sources != null) payload.put("sources", new JSArray(tx.sources));
+        return payload;
+    }
+
+    private static void migrateLegacyQueue(Context context, EventJournal journal) {
+        SharedPreferences prefs = context.getSharedPreferences(LEGACY_QUEUE_PREF, Context.MODE_PRIVATE);
+        if (!prefs.contains(LEGACY_QUEUE_KEY)) return;
+        try {
+            JSONArray arr = new JSONArray(prefs.getString(LEGACY_QUEUE_KEY, "[]"));
+            for (int i = 0; i < arr.length(); i++) {
+                JSONObject o = arr.getJSONObject(i);
+                CapturedTransaction tx = new CapturedTransaction();
+                tx.eventKey = o.optString("eventKey", null);
+                tx.id = o.optString("id", null);
+                tx.type = o.optString("type", null);
+                tx.amountCents = Math.round(o.optDouble("amount", 0) * 100);
+                tx.dateMs = o.optLong("date", System.currentTimeMillis());
+                tx.contact = o.optString("contact", null);
+                tx.description = o.optString("description", null);
+                journal.append(tx);
+            }
+            Log.d(TAG, "Migrated " + arr.length() + " events from the legacy queue");
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to migrate legacy queue", e);
+        }
+        prefs.edit().remove(LEGACY_QUEUE_KEY).apply();
+    }
+}
@@ -0,0 +1,57 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.notifications;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-package high-water mark of notification post times: the newest post the ingest worker has
+ * processed for each app, kept in SharedPreferences so it survives process death. On reconnect,
+ * anything in the shade at or below its package's mark has already been seen and is skipped.
+ *
+ * <p>A package's notifications run in posting order on one lane, so the mark only passes a post
+ * once it is processed. A post the lane had to drop holds its package's mark below it until the
+ * next catch-up, which is what picks it up again. Safe to call from any thread.
+ */
+final class CatchUpMarks {
+    private static final String PREFS = "notification_catch_up_marks";
+
+    private final SharedPreferences prefs;
+    private final Map<String, Long> marks = new HashMap<>();
+    private final Map<String, Long> holds = new HashMap<>();
+
+    CatchUpMarks(Context context) {
+        prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        for (Map.Entry<String, ?> e : prefs.getAll().entrySet()) {
+            if (e.getValue() instanceof Long) marks.put(e.getKey(), (Long) e.getValue());
+        }
+    }
+
+    /** Post time of the newest processed notification from {@code pkg}, or 0 if none. */
+    synchronized long get(String pkg) {
+        Long mark = marks.get(pkg);
+        return mark != null ? mark : 0;
+    }
+
+    /** Records that {@code pkg}'s post at {@code postTime} was processed. */
+    synchronized void advance(String pkg, long postTime) {
+        Long hold = holds.get(pkg);
+        if (hold != null && postTime >= hold) postTime = hold - 1;
+        if (postTime <= get(pkg)) return;
+        marks.put(pkg, postTime);
+        prefs.edit().putLong(pkg, postTime).apply();
+    }
+
+    /** Keeps {@code pkg}'s mark below a post that was dropped before it could be processed. */
+    synchronized void holdBelow(String pkg, long postTime) {
+        Long hold = holds.get(pkg);
+        if (hold == null || postTime < hold) holds.put(pkg, postTime);
+    }
+
+    /** Called as a catch-up starts: it rescans everything above the marks, dropped posts included. */
+    synchronized void releaseHolds() {
+        holds.clear();
+    }
+}
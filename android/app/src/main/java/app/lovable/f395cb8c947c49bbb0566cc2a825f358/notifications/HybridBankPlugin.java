@@ -1,96 +1,80 @@
 package app.lovable.f395cb8c947c49bbb0566cc2a825f358.notifications;
 
-import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
+import android.os.Handler;
 import android.provider.Settings;
-import android.text.TextUtils;
 import android.util.Log;
-import android.app.ActivityManager;
 
+import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
 import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.CapacitorPlugin;
 
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture.CaptureBus;
+import app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture.CapturedTransaction;
+import app.lovable.f395cb8c947c49bbb0566cc2a825f358.store.TransactionStore;
+
 @CapacitorPlugin(name = "HybridBankNotifications")
 public class HybridBankPlugin extends Plugin {
-    private BroadcastReceiver notificationReceiver;
-    private BroadcastReceiver accessibilityReceiver;
+    private CaptureBus.Subscription captures;
+    private BridgeBatcher batcher;
+    private ServiceStatusMonitor statusMonitor;
+    private final ServiceStatusMonitor.Listener statusListener = this::onServiceStatusChanged;
     private static final String TAG = "HybridBankPlugin";
 
+    // Captures arriving within this window, up to the cap, reach the web layer as one event
+    private static final long BATCH_WINDOW_MS = 150;
+    private static final int MAX_BATCH = 50;
+
     @Override
     public void load() {
         super.load();
         Context ctx = getContext();
         Log.d(TAG, "HybridBankPlugin loaded - using both notification and accessibility services");
-        
-        // Register receiver for NotificationListenerService events
-        notificationReceiver = new BroadcastReceiver() {
-            @Override
-            public void onReceive(Context context, Intent intent) {
-                if (intent == null) return;
-                if (!BankNotificationListenerService.ACTION_NEW_BANK_EVENT.equals(intent.getAction())) return;
-                
-                Log.d(TAG, "Received bank notification event");
-                JSObject payload = createTransactionPayload(intent);
-                notifyListeners("bankTransaction", payload);
-            }
-        };
-        
-        // Register receiver for AccessibilityService events (backup)
-        accessibilityReceiver = new BroadcastReceiver() {
-            @Override
-            public void onReceive(Context context, Intent intent) {
-                if (intent == null) return;
-                if (!"app.lovable.BANK_ACCESSIBILITY_EVENT".equals(intent.getAction())) return;
-                
-                Log.d(TAG, "Received bank accessibility event (backup)");
-                JSObject payload = createTransactionPayload(intent);
-                notifyListeners("bankTransaction", payload);
-            }
-        };
-        
-        // Register both receivers
-        IntentFilter notificationFilter = new IntentFilter(BankNotificationListenerService.ACTION_NEW_BANK_EVENT);
-        IntentFilter accessibilityFilter = new IntentFilter("app.lovable.BANK_ACCESSIBILITY_EVENT");
-        
-        try {
-            // Use API level check to safely use new methods
-            if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.O) {
-                ctx.registerReceiver(notificationReceiver, notificationFilter, Context.RECEIVER_EXPORTED);
-                ctx.registerReceiver(accessibilityReceiver, accessibilityFilter, Context.RECEIVER_EXPORTED);
-            } else {
-                ctx.registerReceiver(notificationReceiver, notificationFilter);
-                ctx.registerReceiver(accessibilityReceiver, accessibilityFilter);
-            }
-        } catch (Exception e) {
-            // Fallback for any issues
-            ctx.registerReceiver(notificationReceiver, notificationFilter);
-            ctx.registerReceiver(accessibilityReceiver, accessibilityFilter);
-        }
+        statusMonitor = ServiceStatusMonitor.get(ctx);
+        statusMonitor.addListener(statusListener);
+        batcher = new BridgeBatcher(ctx.getMainLooper(), BATCH_WINDOW_MS, MAX_BATCH, this::deliverBatch);
+
+        // Captures from both services arrive in-process; the batcher runs on the main looper
+        Handler main = new Handler(ctx.getMainLooper());
+        captures = CaptureBus.get().subscribe(tx -> {
+            JSObject payload = CaptureJournal.toPayload(tx);
+            main.post(() -> batcher.add(payload));
+        });
     }
 
     @Override
     protected void handleOnDestroy() {
-        try { 
-            if (notificationReceiver != null) getContext().unregisterReceiver(notificationReceiver);
-            if (accessibilityReceiver != null) getContext().unregisterReceiver(accessibilityReceiver);
-        } catch (Exception ignored) {}
+        if (captures != null) captures.close();
+        if (statusMonitor != null) statusMonitor.removeListener(statusListener);
+        if (batcher != null) batcher.close();
         super.handleOnDestroy();
     }
 
-    private JSObject createTransactionPayload(Intent intent) {
-        JSObject payload = new JSObject();
-        payload.put("id", intent.getStringExtra("id"));
-        payload.put("type", intent.getStringExtra("type"));
-        payload.put("amount", intent.getDoubleExtra("amount", 0));
-        payload.put("date", intent.getLongExtra("date", System.currentTimeMillis()));
-        payload.put("contact", intent.getStringExtra("contact"));
-        payload.put("description", intent.getStringExtra("description"));
-        return payload;
+    /**
+     * Batch listeners get the whole batch as one "bankTransactions" event; listeners still on the
+     * single-event API get one "bankTransaction" per capture, as before.
+     */
+    private void deliverBatch(JSArray batch) {
+        if (hasListeners("bankTransactions")) {
+            JSObject ret = new JSObject();
+            ret.put("events", batch);
+            notifyListeners("bankTransactions", ret);
+        }
+        if (hasListeners("bankTransaction")) {
+            for (int i = 0; i < batch.length(); i++) {
+                Object payload = batch.opt(i);
+                if (payload instanceof JSObject) notifyListeners("bankTransaction", (JSObject) payload);
+            }
+        }
     }
 
     @PluginMethod
@@ -215,36 +199,10 @@ public class HybridBankPlugin extends Plugin {
             String packageName = getContext().getPackageName();
             ret.put("packageName", packageName);
             
-            // Get enabled notification listeners
-            String enabledListeners = Settings.Secure.getString(
-                getContext().getContentResolver(),
-                "enabled_notification_listeners"
-            );
-            ret.put("enabledListeners", enabledListeners != null ? enabledListeners : "null");
-            
-            // Check various permission methods
+            // Report the cached status only; the raw setting lists every app's listener
             ret.put("notificationEnabled", isNotificationListenerEnabled());
             ret.put("accessibilityEnabled", isAccessibilityServiceEnabled());
             
-            // Check running services
-            try {
-                ActivityManager manager = (ActivityManager) getContext().getSystemService(Context.ACTIVITY_SERVICE);
-                boolean serviceRunning = false;
-                if (manager != null) {
-                    for (ActivityManager.RunningServiceInfo service : manager.getRunningServices(Integer.MAX_VALUE)) {
-                        if (service.service.getClassName().contains("BankNotification") || 
-                            service.service.getClassName().contains("BankAccessibility")) {
-                            serviceRunning = true;
-                            break;
-                        }
-                    }
-                }
-                ret.put("servicesRunning", serviceRunning);
-            } catch (Exception e) {
-                ret.put("servicesRunning", false);
-                ret.put("serviceError", e.getMessage());
-            }
-            
             call.resolve(ret);
         } catch (Exception e) {
             Log.e(TAG, "Failed to get debug info", e);
@@ -252,98 +210,203 @@ public class HybridBankPlugin extends Plugin {
         }
     }
 
+    /** The change feed has this one consumer: a single ack cursor can only serve one reader. */
+    @PluginMethod
+    public void readSince(PluginCall call) {
+        Long cursor = call.getLong("cursor", 0L);
+        int limit = call.getInt("limit", CaptureJournal.MAX_PAGE_SIZE);
+        try {
+            JSObject ret = CaptureJournal.readSinceAsJson(getContext(), cursor != null ? cursor : 0L, limit);
+            Log.d(TAG, "Read " + ret.getJSONArray("events").length() + " events since " + cursor);
+            call.resolve(ret);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to read events", e);
+            call.reject("Failed to read events: " + e.getMessage());
+        }
+    }
+
     @PluginMethod
-    public void drainBacklog(PluginCall call) {
+    public void ack(PluginCall call) {
+        Long cursor = call.getLong("cursor");
+        if (cursor == null) {
+            call.reject("Missing cursor");
+            return;
+        }
         try {
-            android.content.SharedPreferences prefs = getContext().getSharedPreferences("bank_events_queue", android.content.Context.MODE_PRIVATE);
-            String raw = prefs.getString("events", "[]");
-            Log.d(TAG, "Draining backlog with " + new org.json.JSONArray(raw).length() + " events");
-            // Clear after reading
-            prefs.edit().putString("events", "[]").apply();
+            // Only now may the journal reclaim the records the web layer has committed
+            CaptureJournal.get(getContext()).ack(cursor);
+            call.resolve();
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to acknowledge events", e);
+            call.reject("Failed to acknowledge events: " + e.getMessage());
+        }
+    }
+
+    @PluginMethod
+    public void queryTransactions(PluginCall call) {
+        TransactionStore.Query query = new TransactionStore.Query();
+        query.fromMs = call.getLong("from");
+        query.toMs = call.getLong("to");
+        query.type = call.getString("type");
+        query.contact = call.getString("contact");
+        query.category = call.getString("category");
+        query.cursor = call.getString("cursor");
+        query.limit = call.getInt("limit", query.limit);
+        try {
+            TransactionStore.Page page = TransactionStore.get(getContext()).query(query);
+            JSArray transactions = new JSArray();
+            for (CapturedTransaction tx : page.transactions) transactions.put(CaptureJournal.toPayload(tx));
             JSObject ret = new JSObject();
-            ret.put("events", new org.json.JSONArray(raw));
+            ret.put("transactions", transactions);
+            if (page.nextCursor != null) ret.put("nextCursor", page.nextCursor);
             call.resolve(ret);
         } catch (Exception e) {
-            Log.e(TAG, "Failed to drain backlog", e);
-            call.reject("Failed to drain backlog: " + e.getMessage());
+            Log.e(TAG, "Failed to query transactions", e);
+            call.reject("Failed to query transactions: " + e.getMessage());
         }
     }
 
-    private boolean isNotificationListenerEnabled() {
-        String enabledListeners = Settings.Secure.getString(
-            getContext().getContentResolver(),
-            "enabled_notification_listeners"
-        );
-        
-        if (enabledListeners == null) {
-            Log.d(TAG, "No enabled notification listeners found");
-            return false;
+    @PluginMethod
+    public void updateCategory(PluginCall call) {
+        String id = call.getString("id");
+        if (id == null) {
+            call.reject("Missing id");
+            return;
         }
-        
-        String packageName = getContext().getPackageName();
-        Log.d(TAG, "Checking notification listeners for package: " + packageName);
-        Log.d(TAG, "Enabled listeners: " + enabledListeners);
-        
-        // Check for any variation containing our package name
-        if (enabledListeners.contains(packageName)) {
-            Log.d(TAG, "Found package name in enabled listeners");
-            return true;
+        try {
+            JSObject ret = new JSObject();
+            ret.put("updated", TransactionStore.get(getContext()).updateCategory(id, call.getString("category")));
+            call.resolve(ret);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to update category", e);
+            call.reject("Failed to update category: " + e.getMessage());
         }
-        
-        // Check for BankNotificationListenerService in any form
-        if (enabledListeners.toLowerCase().contains("banknotificationlistenerservice")) {
-            Log.d(TAG, "Found BankNotificationListenerService in enabled listeners");
-            return true;
+    }
+
+    @PluginMethod
+    public void deleteTransaction(PluginCall call) {
+        String id = call.getString("id");
+        if (id == null) {
+            call.reject("Missing id");
+            return;
         }
-        
-        // Alternative method: Check if the service is actually running
         try {
-            android.app.ActivityManager manager = (android.app.ActivityManager) getContext().getSystemService(Context.ACTIVITY_SERVICE);
-            if (manager != null) {
-                for (android.app.ActivityManager.RunningServiceInfo service : manager.getRunningServices(Integer.MAX_VALUE)) {
-                    String className = service.service.getClassName();
-                    if (className != null && className.contains("BankNotificationListenerService")) {
-                        Log.d(TAG, "Found running notification listener service: " + className);
-                        return true;
-                    }
-                }
-            }
+            JSObject ret = new JSObject();
+            ret.put("deleted", TransactionStore.get(getContext()).delete(id));
+            call.resolve(ret);
         } catch (Exception e) {
-            Log.w(TAG, "Failed to check running services", e);
+            Log.e(TAG, "Failed to delete transaction", e);
+            call.reject("Failed to delete transaction: " + e.getMessage());
         }
-        
-        Log.d(TAG, "Notification listener not found");
-        return false;
     }
 
-    private boolean isAccessibilityServiceEnabled() {
-        String packageName = getContext().getPackageName();
-        
-        String enabledServices = Settings.Secure.getString(
-            getContext().getContentResolver(),
-            Settings.Secure.ENABLED_ACCESSIBILITY_SERVICES
-        );
-        
-        if (TextUtils.isEmpty(enabledServices)) {
-            Log.d(TAG, "No accessibility services enabled");
-            return false;
+    @PluginMethod
+    public void clearTransactions(PluginCall call) {
+        try {
+            JSObject ret = new JSObject();
+            ret.put("deleted", TransactionStore.get(getContext()).clear());
+            call.resolve(ret);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to clear transactions", e);
+            call.reject("Failed to clear transactions: " + e.getMessage());
         }
-        
-        Log.d(TAG, "Checking accessibility services for package: " + packageName);
-        Log.d(TAG, "Enabled accessibility services: " + enabledServices);
-        
-        // Check for any service containing our package name
-        if (enabledServices.contains(packageName)) {
-            Log.d(TAG, "Found package name in accessibility services");
-            return true;
+    }
+
+    /** Received and sent totals per month, oldest first; a few rows however long the history is. */
+    @PluginMethod
+    public void getMonthlyTotals(PluginCall call) {
+        try {
+            List<TransactionStore.Totals> totals = TransactionStore.get(getContext())
+                .monthlyTotals(call.getString("fromMonth"), call.getString("toMonth"));
+            call.resolve(totalsResult(totals, "month"));
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to read monthly totals", e);
+            call.reject("Failed to read monthly totals: " + e.getMessage());
         }
-        
-        // Check for BankAccessibilityService in any form
-        if (enabledServices.toLowerCase().contains("bankaccessibilityservice")) {
-            Log.d(TAG, "Found BankAccessibilityService in accessibility services");
-            return true;
+    }
+
+    /** Totals per category or per contact over a range of months. */
+    @PluginMethod
+    public void getTotalsBy(PluginCall call) {
+        String by = call.getString("by");
+        if (!"category".equals(by) && !"contact".equals(by)) {
+            call.reject("Invalid grouping: " + by);
+            return;
         }
-        
-        return false;
+        try {
+            TransactionStore store = TransactionStore.get(getContext());
+            String from = call.getString("fromMonth");
+            String to = call.getString("toMonth");
+            List<TransactionStore.Totals> totals = "category".equals(by)
+                ? store.categoryTotals(from, to) : store.contactTotals(from, to);
+            call.resolve(totalsResult(totals, by));
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to read totals", e);
+            call.reject("Failed to read totals: " + e.getMessage());
+        }
+    }
+
+    private static JSObject totalsResult(List<TransactionStore.Totals> totals, String keyName) {
+        JSArray rows = new JSArray();
+        for (TransactionStore.Totals t : totals) {
+            JSObject row = new JSObject();
+            row.put(keyName, t.key);
+            row.put("receivedCents", t.receivedCents);
+            row.put("sentCents", t.sentCents);
+            row.put("receivedCount", t.receivedCount);
+            row.put("sentCount", t.sentCount);
+            rows.put(row);
+        }
+        JSObject ret = new JSObject();
+        ret.put("totals", rows);
+        return ret;
+    }
+
+    /** One-time move of the history the web layer kept in localStorage into the native store. */
+    @PluginMethod
+    public void importTransactions(PluginCall call) {
+        JSArray items = call.getArray("transactions");
+        if (items == null) {
+            call.reject("Missing transactions");
+            return;
+        }
+        try {
+            List<CapturedTransaction> records = new ArrayList<>(items.length());
+            for (int i = 0; i < items.length(); i++) {
+                JSONObject o = items.getJSONObject(i);
+                CapturedTransaction tx = new CapturedTransaction();
+                tx.id = o.optString("id", null);
+                tx.type = o.optString("type", null);
+                if (tx.id == null || tx.type == null) continue;
+                tx.amountCents = o.has("amountCents") ? o.optLong("amountCents") : Math.round(o.optDouble("amount", 0) * 100);
+                tx.dateMs = o.optLong("date", System.currentTimeMillis());
+                tx.contact = o.optString("contact", null);
+                tx.description = o.optString("description", null);
+                tx.category = o.optString("category", null);
+                records.add(tx);
+            }
+            JSObject ret = new JSObject();
+            ret.put("imported", TransactionStore.get(getContext()).importAll(records));
+            call.resolve(ret);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to import transactions", e);
+            call.reject("Failed to import transactions: " + e.getMessage());
+        }
+    }
+
+    private boolean isNotificationListenerEnabled() {
+        return statusMonitor.isNotificationListenerEnabled();
+    }
+
+    private boolean isAccessibilityServiceEnabled() {
+        return statusMonitor.isAccessibilityServiceEnabled();
+    }
+
+    private void onServiceStatusChanged(boolean notificationEnabled, boolean accessibilityEnabled) {
+        JSObject ret = new JSObject();
+        ret.put("enabled", notificationEnabled || accessibilityEnabled);
+        ret.put("notificationEnabled", notificationEnabled);
+        ret.put("accessibilityEnabled", accessibilityEnabled);
+        notifyListeners("serviceStatusChanged", ret);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,88 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.notifications;
+
+import android.os.Process;
+import android.util.Log;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background pipeline for notification parsing, dedupe and persistence.
+ *
+ * <p>Work is spread over a few single-threaded lanes; a package always maps to the same lane, so
+ * its notifications are processed in posting order. Each lane has a bounded queue. When a lane is
+ * full the new snapshot is dropped and counted rather than blocking the listener's callback
+ * thread: the notification is still in the shade and gets picked up again by the catch-up pass in
+ * {@code onListenerConnected}, which queues its work on the same lanes.
+ */
+final class NotificationIngest {
+    private static final String TAG = "NotificationIngest";
+    private static final int LANES = 2;
+    private static final int LANE_CAPACITY = 128;
+
+    interface Processor {
+        void process(NotificationSnapshot snapshot);
+    }
+
+    private final ThreadPoolExecutor[] lanes = new ThreadPoolExecutor[LANES];
+    private final Processor processor;
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    NotificationIngest(Processor processor) {
+        this.processor = processor;
+        for (int i = 0; i < LANES; i++) {
+            final String name = "bank-ingest-" + i;
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(LANE_CAPACITY),
+                r -> new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    r.run();
+                }, name));
+        }
+    }
+
+    /** Queues the snapshot; returns false if its lane was full and the snapshot was dropped. */
+    boolean submit(NotificationSnapshot snapshot) {
+        if (snapshot == null) return false;
+        return submit(snapshot.packageName, () -> processor.process(snapshot));
+    }
+
+    /**
+     * Queues {@code task} on {@code packageName}'s lane, behind that package's earlier work; returns
+     * false if the lane was full and the task was dropped.
+     */
+    boolean submit(String packageName, Runnable task) {
+        ThreadPoolExecutor lane = lanes[(packageName.hashCode() & 0x7fffffff) % LANES];
+        try {
+            lane.execute(() -> {
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    Log.e(TAG, "Failed to process notification from " + packageName, e);
+                }
+            });
+            submitted.incrementAndGet();
+            return true;
+        } catch (RejectedExecutionException e) {
+            long total = dropped.incrementAndGet();
+            Log.w(TAG, "Ingest lane full, dropped notification from " + packageName + " (" + total + " dropped)");
+            return false;
+        }
+    }
+
+    long submittedCount() {
+        return submitted.get();
+    }
+
+    long droppedCount() {
+        return dropped.get();
+    }
+
+    void shutdown() {
+        for (ThreadPoolExecutor lane : lanes) lane.shutdown();
+    }
+}
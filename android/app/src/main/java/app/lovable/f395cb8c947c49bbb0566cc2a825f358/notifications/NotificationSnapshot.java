@@ -0,0 +1,80 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.notifications;
+
+import android.app.Notification;
+import android.os.Bundle;
+import android.os.Parcelable;
+import android.service.notification.StatusBarNotification;
+
+import app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture.FinancialPreFilter;
+
+/**
+ * Immutable copy of the parts of a posted notification the ingest worker needs. Taking it is the
+ * only work done on the listener's callback thread.
+ */
+final class NotificationSnapshot {
+    // Notification.EXTRA_MESSAGES and the message bundle's text key, public from API 24
+    private static final String EXTRA_MESSAGES = "android.messages";
+    private static final String MESSAGE_TEXT = "text";
+
+    final String packageName;
+    final int id;
+    final String tag;
+    final long postTime;
+    final String title;
+    final String text;
+    final String bigText;
+    final String[] lines; // inbox lines, or the messages of a messaging-style notification
+    final boolean groupSummary;
+
+    private NotificationSnapshot(StatusBarNotification sbn, Bundle extras) {
+        packageName = sbn.getPackageName();
+        id = sbn.getId();
+        tag = sbn.getTag();
+        postTime = sbn.getPostTime();
+        title = toString(extras.getCharSequence(Notification.EXTRA_TITLE));
+        text = toString(extras.getCharSequence(Notification.EXTRA_TEXT));
+        bigText = toString(extras.getCharSequence(Notification.EXTRA_BIG_TEXT));
+        CharSequence[] rawLines = extras.getCharSequenceArray(Notification.EXTRA_TEXT_LINES);
+        if (rawLines != null) {
+            lines = new String[rawLines.length];
+            for (int i = 0; i < rawLines.length; i++) lines[i] = rawLines[i] != null ? rawLines[i].toString() : null;
+        } else {
+            lines = messages(extras);
+        }
+        groupSummary = (sbn.getNotification().flags & Notification.FLAG_GROUP_SUMMARY) != 0;
+    }
+
+    // A single message is already EXTRA_TEXT; only a conversation adds lines of its own
+    private static String[] messages(Bundle extras) {
+        Parcelable[] raw = extras.getParcelableArray(EXTRA_MESSAGES);
+        if (raw == null || raw.length < 2) return null;
+        String[] messages = new String[raw.length];
+        for (int i = 0; i < raw.length; i++) {
+            if (raw[i] instanceof Bundle) messages[i] = toString(((Bundle) raw[i]).getCharSequence(MESSAGE_TEXT));
+        }
+        return messages;
+    }
+
+    /**
+     * Returns null when the notification carries no extras to parse, or, without copying anything,
+     * when the pre-filter rejects the raw extras.
+     */
+    static NotificationSnapshot of(StatusBarNotification sbn, FinancialPreFilter filter) {
+        if (sbn == null) return null;
+        Notification notification = sbn.getNotification();
+        if (notification == null || notification.extras == null) return null;
+        Bundle extras = notification.extras;
+        if (!filter.accept(sbn.getPackageName(),
+                extras.getCharSequence(Notification.EXTRA_TITLE),
+                extras.getCharSequence(Notification.EXTRA_TEXT),
+                extras.getCharSequence(Notification.EXTRA_BIG_TEXT),
+                extras.getCharSequenceArray(Notification.EXTRA_TEXT_LINES))) {
+            return null;
+        }
+        return new NotificationSnapshot(sbn, extras);
+    }
+
+    private static String toString(CharSequence cs) {
+        return cs != null ? cs.toString() : "";
+    }
+}
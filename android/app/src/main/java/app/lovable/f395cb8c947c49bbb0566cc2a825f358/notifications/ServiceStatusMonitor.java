@@ -0,0 +1,130 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.notifications;
+
+import android.content.ComponentName;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.Settings;
+import android.text.TextUtils;
+import android.util.Log;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import app.lovable.f395cb8c947c49bbb0566cc2a825f358.accessibility.BankAccessibilityService;
+
+/**
+ * Keeps whether our notification listener and accessibility service are enabled, so callers
+ * read a field instead of fetching and scanning the system setting strings on every check.
+ *
+ * <p>The two secure settings are watched with {@link ContentObserver}s: a change marks the cached
+ * value stale, it is re-read once, and listeners hear about it only if the answer flipped.
+ */
+public final class ServiceStatusMonitor {
+    private static final String TAG = "ServiceStatusMonitor";
+
+    // Not exposed as a constant by the SDK
+    private static final String ENABLED_NOTIFICATION_LISTENERS = "enabled_notification_listeners";
+
+    public interface Listener {
+        void onStatusChanged(boolean notificationEnabled, boolean accessibilityEnabled);
+    }
+
+    private static ServiceStatusMonitor instance;
+
+    private final ContentResolver resolver;
+    private final ComponentName listenerComponent;
+    private final ComponentName accessibilityComponent;
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile boolean notificationStale = true;
+    private volatile boolean accessibilityStale = true;
+    private volatile boolean notificationEnabled;
+    private volatile boolean accessibilityEnabled;
+
+    public static synchronized ServiceStatusMonitor get(Context context) {
+        if (instance == null) instance = new ServiceStatusMonitor(context.getApplicationContext());
+        return instance;
+    }
+
+    private ServiceStatusMonitor(Context app) {
+        resolver = app.getContentResolver();
+        listenerComponent = new ComponentName(app, BankNotificationListenerService.class);
+        accessibilityComponent = new ComponentName(app, BankAccessibilityService.class);
+
+        Handler main = new Handler(Looper.getMainLooper());
+        resolver.registerContentObserver(
+            Settings.Secure.getUriFor(ENABLED_NOTIFICATION_LISTENERS), false,
+            new ContentObserver(main) {
+                @Override
+                public void onChange(boolean selfChange, Uri uri) {
+                    notificationStale = true;
+                    dispatchIfChanged();
+                }
+            });
+        resolver.registerContentObserver(
+            Settings.Secure.getUriFor(Settings.Secure.ENABLED_ACCESSIBILITY_SERVICES), false,
+            new ContentObserver(main) {
+                @Override
+                public void onChange(boolean selfChange, Uri uri) {
+                    accessibilityStale = true;
+                    dispatchIfChanged();
+                }
+            });
+
+        // Prime the cache so the first change is compared against the real previous state
+        isNotificationListenerEnabled();
+        isAccessibilityServiceEnabled();
+    }
+
+    public boolean isNotificationListenerEnabled() {
+        if (notificationStale) {
+            // Clear first: a change landing during the read marks it stale again
+            notificationStale = false;
+            notificationEnabled = isListed(ENABLED_NOTIFICATION_LISTENERS, listenerComponent);
+        }
+        return notificationEnabled;
+    }
+
+    public boolean isAccessibilityServiceEnabled() {
+        if (accessibilityStale) {
+            accessibilityStale = false;
+            accessibilityEnabled = isListed(Settings.Secure.ENABLED_ACCESSIBILITY_SERVICES, accessibilityComponent);
+        }
+        return accessibilityEnabled;
+    }
+
+    /** Listeners are called on the main thread. */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void dispatchIfChanged() {
+        boolean notificationBefore = notificationEnabled;
+        boolean accessibilityBefore = accessibilityEnabled;
+        boolean notificationNow = isNotificationListenerEnabled();
+        boolean accessibilityNow = isAccessibilityServiceEnabled();
+        if (notificationNow == notificationBefore && accessibilityNow == accessibilityBefore) return;
+
+        Log.d(TAG, String.format("Services status changed - Notifications: %b, Accessibility: %b",
+            notificationNow, accessibilityNow));
+        for (Listener l : listeners) l.onStatusChanged(notificationNow, accessibilityNow);
+    }
+
+    /** Whether {@code component} is one of the colon-separated entries of the setting. */
+    private boolean isListed(String setting, ComponentName component) {
+        String value = Settings.Secure.getString(resolver, setting);
+        if (TextUtils.isEmpty(value)) return false;
+        for (String entry : value.split(":")) {
+            // Entries may use the short ".Class" form, which unflattening expands
+            if (component.equals(ComponentName.unflattenFromString(entry))) return true;
+        }
+        return false;
+    }
+}
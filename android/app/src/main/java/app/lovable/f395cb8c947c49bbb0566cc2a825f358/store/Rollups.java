@@ -0,0 +1,184 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.store;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+
+import app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture.TransactionParser;
+
+/**
+ * Received and sent totals per month, per month and category, and per month and counterparty,
+ * kept in centavos next to the transactions table. {@link TransactionStore} adjusts them in the
+ * same SQLite transaction as every insert, recategorization and delete, so a query reads a few
+ * rows per month instead of the history.
+ *
+ * <p>Months are "yyyy-MM" in the device's time zone when the transaction was written. Transactions
+ * without a category or contact count under the empty key; any type other than received counts
+ * as sent, as the web layer has always treated it.
+ *
+ * <p>An instance adjusts the totals within one SQLite transaction: its statements are compiled on
+ * first use and reused for every transaction the batch touches, until it is closed.
+ */
+final class Rollups implements Closeable {
+    static final String TABLE = "rollups";
+
+    static final String BY_MONTH = "month";
+    static final String BY_CATEGORY = "category";
+    static final String BY_CONTACT = "contact";
+
+    private final SQLiteDatabase db;
+    // Indexed by received ? 1 : 0
+    private final SQLiteStatement[] updates = new SQLiteStatement[2];
+    private final SQLiteStatement[] inserts = new SQLiteStatement[2];
+    private SQLiteStatement deleteEmpty;
+
+    Rollups(SQLiteDatabase db) {
+        this.db = db;
+    }
+
+    static void create(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+            + "dimension TEXT NOT NULL, "
+            + "month TEXT NOT NULL, "
+            + "key TEXT NOT NULL, "
+            + "received_cents INTEGER NOT NULL DEFAULT 0, "
+            + "sent_cents INTEGER NOT NULL DEFAULT 0, "
+            + "received_count INTEGER NOT NULL DEFAULT 0, "
+            + "sent_count INTEGER NOT NULL DEFAULT 0, "
+            + "PRIMARY KEY (dimension, month, key))");
+    }
+
+    /** Counts a transaction in, with {@code sign} 1, or out again, with {@code sign} -1. */
+    void add(String type, long amountCents, long dateMs, String contact, String category, int sign) {
+        String month = monthOf(dateMs);
+        boolean received = TransactionParser.RECEIVED.equals(type);
+        adjust(BY_MONTH, month, "", received, amountCents, sign);
+        adjust(BY_CATEGORY, month, keyOf(category), received, amountCents, sign);
+        adjust(BY_CONTACT, month, keyOf(contact), received, amountCents, sign);
+    }
+
+    /** Moves a transaction's amount from one category to another within its month. */
+    void recategorize(String type, long amountCents, long dateMs, String oldCategory, String newCategory) {
+        if (keyOf(oldCategory).equals(keyOf(newCategory))) return;
+        String month = monthOf(dateMs);
+        boolean received = TransactionParser.RECEIVED.equals(type);
+        adjust(BY_CATEGORY, month, keyOf(oldCategory), received, amountCents, -1);
+        adjust(BY_CATEGORY, month, keyOf(newCategory), received, amountCents, 1);
+    }
+
+    @Override
+    public void close() {
+        for (SQLiteStatement statement : updates) close(statement);
+        for (SQLiteStatement statement : inserts) close(statement);
+        close(deleteEmpty);
+    }
+
+    /**
+     * Totals of {@code dimension} between {@code fromMonth} (inclusive) and {@code toMonth}
+     * (exclusive), either of which may be null. Monthly totals come one row per month, oldest
+     * first; category and contact totals are summed over the range, largest sent total first.
+     */
+    static List<TransactionStore.Totals> query(SQLiteDatabase db, String dimension, String fromMonth, String toMonth) {
+        StringBuilder where = new StringBuilder("dimension = ?");
+        List<String> args = new ArrayList<>();
+        args.add(dimension);
+        if (fromMonth != null) {
+            where.append(" AND month >= ?");
+            args.add(fromMonth);
+        }
+        if (toMonth != null) {
+            where.append(" AND month < ?");
+            args.add(toMonth);
+        }
+        boolean byMonth = BY_MONTH.equals(dimension);
+        String group = byMonth ? "month" : "key";
+        String sql = "SELECT " + group + ", SUM(received_cents), SUM(sent_cents), SUM(received_count), SUM(sent_count)"
+            + " FROM " + TABLE + " WHERE " + where + " GROUP BY " + group
+            + (byMonth ? " ORDER BY month" : " ORDER BY 3 DESC, 2 DESC, 1");
+
+        List<TransactionStore.Totals> out = new ArrayList<>();
+        try (Cursor c = db.rawQuery(sql, args.toArray(new String[0]))) {
+            while (c.moveToNext()) {
+                out.add(new TransactionStore.Totals(c.getString(0), c.getLong(1), c.getLong(2), c.getInt(3), c.getInt(4)));
+            }
+        }
+        return out;
+    }
+
+    static String monthOf(long dateMs) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(dateMs);
+        return String.format(Locale.ROOT, "%04d-%02d", calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1);
+    }
+
+    private static String keyOf(String value) {
+        return value != null ? value : "";
+    }
+
+    private void adjust(String dimension, String month, String key, boolean received, long amountCents, int sign) {
+        SQLiteStatement update = update(received);
+        update.bindLong(1, sign * amountCents);
+        update.bindLong(2, sign);
+        update.bindString(3, dimension);
+        update.bindString(4, month);
+        update.bindString(5, key);
+        if (update.executeUpdateDelete() == 0) {
+            // Nothing to take away from: the row only ever holds transactions still in the table
+            if (sign < 0) return;
+            SQLiteStatement insert = insert(received);
+            insert.bindString(1, dimension);
+            insert.bindString(2, month);
+            insert.bindString(3, key);
+            insert.bindLong(4, amountCents);
+            insert.executeInsert();
+        } else if (sign < 0) {
+            if (deleteEmpty == null) {
+                deleteEmpty = db.compileStatement("DELETE FROM " + TABLE
+                    + " WHERE dimension = ? AND month = ? AND key = ? AND received_count = 0 AND sent_count = 0");
+            }
+            deleteEmpty.bindString(1, dimension);
+            deleteEmpty.bindString(2, month);
+            deleteEmpty.bindString(3, key);
+            deleteEmpty.executeUpdateDelete();
+        }
+    }
+
+    private SQLiteStatement update(boolean received) {
+        int i = received ? 1 : 0;
+        if (updates[i] == null) {
+            String cents = centsColumn(received);
+            String count = countColumn(received);
+            updates[i] = db.compileStatement("UPDATE " + TABLE + " SET "
+                + cents + " = " + cents + " + ?, " + count + " = " + count + " + ?"
+                + " WHERE dimension = ? AND month = ? AND key = ?");
+        }
+        return updates[i];
+    }
+
+    private SQLiteStatement insert(boolean received) {
+        int i = received ? 1 : 0;
+        if (inserts[i] == null) {
+            inserts[i] = db.compileStatement("INSERT INTO " + TABLE + " (dimension, month, key, "
+                + centsColumn(received) + ", " + countColumn(received) + ") VALUES (?, ?, ?, ?, 1)");
+        }
+        return inserts[i];
+    }
+
+    private static String centsColumn(boolean received) {
+        return received ? "received_cents" : "sent_cents";
+    }
+
+    private static String countColumn(boolean received) {
+        return received ? "received_count" : "sent_count";
+    }
+
+    private static void close(SQLiteStatement statement) {
+        if (statement != null) statement.close();
+    }
+}
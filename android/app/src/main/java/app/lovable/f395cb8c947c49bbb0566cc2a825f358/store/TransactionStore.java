@@ -0,0 +1,340 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.store;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture.CapturedTransaction;
+import app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture.TransactionSink;
+
+/**
+ * SQLite history of every captured transaction, written by the capture pipeline and queried by
+ * the web layer one page at a time.
+ *
+ * <p>Pages are ordered newest first by (date, id) and continued with a keyset cursor, so a page
+ * costs the same however deep into the history it is. Every filter the UI uses (date range, type,
+ * contact, category) is backed by an index that leads with that column and ends with the date.
+ * Monthly, per-category and per-contact totals are kept up to date in {@link Rollups} as rows
+ * are written, recategorized and deleted.
+ *
+ * <p>Event keys are unique, so a capture replayed after the journal has forgotten it (acked,
+ * compacted, process restarted) is ignored here rather than stored twice.
+ */
+public final class TransactionStore extends SQLiteOpenHelper implements TransactionSink {
+    private static final String DB_NAME = "transactions.db";
+    private static final int DB_VERSION = 1;
+
+    static final String TABLE = "transactions";
+    private static final String[] COLUMNS = {
+        "id", "event_key", "type", "amount_cents", "date_ms", "contact", "description", "category",
+        "source", "channel", "sources"
+    };
+    // What a row contributes to the rollups
+    private static final String[] ROLLUP_COLUMNS = { "type", "amount_cents", "date_ms", "contact", "category" };
+    // Provenance entries never contain a newline
+    private static final String SOURCE_SEPARATOR = "\n";
+
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private static TransactionStore instance;
+
+    /** Filters for {@link #query}; null fields are not filtered on. */
+    public static final class Query {
+        public Long fromMs; // inclusive
+        public Long toMs;   // exclusive
+        public String type;
+        public String contact;
+        public String category;
+        public String cursor;
+        public int limit = 100;
+    }
+
+    public static final class Page {
+        public final List<CapturedTransaction> transactions;
+        /** Null on the last page. */
+        public final String nextCursor;
+
+        Page(List<CapturedTransaction> transactions, String nextCursor) {
+            this.transactions = transactions;
+            this.nextCursor = nextCursor;
+        }
+    }
+
+    /** Received and sent totals for one month, category or contact. */
+    public static final class Totals {
+        /** "yyyy-MM" for monthly totals; the category or contact otherwise, "" when there was none. */
+        public final String key;
+        public final long receivedCents;
+        public final long sentCents;
+        public final int receivedCount;
+        public final int sentCount;
+
+        Totals(String key, long receivedCents, long sentCents, int receivedCount, int sentCount) {
+            this.key = key;
+            this.receivedCents = receivedCents;
+            this.sentCents = sentCents;
+            this.receivedCount = receivedCount;
+            this.sentCount = sentCount;
+        }
+    }
+
+    private TransactionStore(Context context) {
+        super(context, DB_NAME, null, DB_VERSION);
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    public static synchronized TransactionStore get(Context context) {
+        if (instance == null) {
+            Context app = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+            instance = new TransactionStore(app);
+        }
+        return instance;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+            + "id TEXT PRIMARY KEY NOT NULL, "
+            + "event_key TEXT, "
+            + "type TEXT NOT NULL, "
+            + "amount_cents INTEGER NOT NULL, "
+            + "date_ms INTEGER NOT NULL, "
+            + "contact TEXT, "
+            + "description TEXT, "
+            + "category TEXT, "
+            + "source TEXT, "
+            + "channel TEXT, "
+            + "sources TEXT)");
+        db.execSQL("CREATE INDEX idx_transactions_date ON " + TABLE + " (date_ms, id)");
+        db.execSQL("CREATE INDEX idx_transactions_type ON " + TABLE + " (type, date_ms)");
+        db.execSQL("CREATE INDEX idx_transactions_contact ON " + TABLE + " (contact, date_ms)");
+        db.execSQL("CREATE INDEX idx_transactions_category ON " + TABLE + " (category, date_ms)");
+        // Records imported from the web layer have no event key; NULLs never collide
+        db.execSQL("CREATE UNIQUE INDEX idx_transactions_event_key ON " + TABLE + " (event_key)");
+        Rollups.create(db);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Only version 1 exists
+    }
+
+    @Override
+    public void insert(CapturedTransaction tx) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try (Rollups rollups = new Rollups(db)) {
+            insertCounted(db, rollups, tx);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    @Override
+    public void insertAll(List<CapturedTransaction> txs) {
+        importAll(txs);
+    }
+
+    /** Inserts records moved over from the web layer's old storage; returns how many were new. */
+    public int importAll(List<CapturedTransaction> records) {
+        SQLiteDatabase db = getWritableDatabase();
+        int inserted = 0;
+        db.beginTransaction();
+        try (Rollups rollups = new Rollups(db)) {
+            for (CapturedTransaction tx : records) {
+                if (insertCounted(db, rollups, tx)) inserted++;
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return inserted;
+    }
+
+    @Override
+    public void addSource(String canonicalId, String provenance) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            String current = null;
+            try (Cursor c = db.query(TABLE, new String[] { "sources" }, "id = ?", new String[] { canonicalId },
+                    null, null, null)) {
+                if (!c.moveToFirst()) return;
+                current = c.getString(0);
+            }
+            List<String> sources = splitSources(current);
+            if (sources.contains(provenance)) return;
+            sources.add(provenance);
+            ContentValues values = new ContentValues();
+            values.put("sources", TextUtils.join(SOURCE_SEPARATOR, sources));
+            db.update(TABLE, values, "id = ?", new String[] { canonicalId });
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    public Page query(Query q) {
+        int limit = Math.max(1, Math.min(q.limit, MAX_PAGE_SIZE));
+        StringBuilder where = new StringBuilder("1");
+        List<String> args = new ArrayList<>();
+        if (q.fromMs != null) {
+            where.append(" AND date_ms >= ?");
+            args.add(Long.toString(q.fromMs));
+        }
+        if (q.toMs != null) {
+            where.append(" AND date_ms < ?");
+            args.add(Long.toString(q.toMs));
+        }
+        if (q.type != null) {
+            where.append(" AND type = ?");
+            args.add(q.type);
+        }
+        if (q.contact != null) {
+            where.append(" AND contact = ?");
+            args.add(q.contact);
+        }
+        if (q.category != null) {
+            where.append(" AND category = ?");
+            args.add(q.category);
+        }
+        if (q.cursor != null) {
+            int sep = q.cursor.indexOf(':');
+            if (sep <= 0) throw new IllegalArgumentException("Invalid cursor: " + q.cursor);
+            String date = Long.toString(Long.parseLong(q.cursor.substring(0, sep)));
+            where.append(" AND (date_ms < ? OR (date_ms = ? AND id < ?))");
+            args.add(date);
+            args.add(date);
+            args.add(q.cursor.substring(sep + 1));
+        }
+
+        List<CapturedTransaction> out = new ArrayList<>(Math.min(limit, 64));
+        String nextCursor = null;
+        // One extra row tells whether another page exists
+        try (Cursor c = getReadableDatabase().query(TABLE, COLUMNS, where.toString(), args.toArray(new String[0]),
+                null, null, "date_ms DESC, id DESC", Integer.toString(limit + 1))) {
+            while (c.moveToNext()) {
+                if (out.size() == limit) {
+                    CapturedTransaction last = out.get(out.size() - 1);
+                    nextCursor = last.dateMs + ":" + last.id;
+                    break;
+                }
+                out.add(fromCursor(c));
+            }
+        }
+        return new Page(out, nextCursor);
+    }
+
+    public boolean updateCategory(String id, String category) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try (Cursor c = db.query(TABLE, ROLLUP_COLUMNS, "id = ?", new String[] { id }, null, null, null);
+             Rollups rollups = new Rollups(db)) {
+            if (!c.moveToFirst()) return false;
+            ContentValues values = new ContentValues();
+            values.put("category", category);
+            db.update(TABLE, values, "id = ?", new String[] { id });
+            rollups.recategorize(c.getString(0), c.getLong(1), c.getLong(2), c.getString(4), category);
+            db.setTransactionSuccessful();
+            return true;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    public boolean delete(String id) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try (Cursor c = db.query(TABLE, ROLLUP_COLUMNS, "id = ?", new String[] { id }, null, null, null);
+             Rollups rollups = new Rollups(db)) {
+            if (!c.moveToFirst()) return false;
+            db.delete(TABLE, "id = ?", new String[] { id });
+            rollups.add(c.getString(0), c.getLong(1), c.getLong(2), c.getString(3), c.getString(4), -1);
+            db.setTransactionSuccessful();
+            return true;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /** Deletes the whole history and its totals; returns how many transactions were removed. */
+    public int clear() {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            int deleted = db.delete(TABLE, "1", null);
+            db.delete(Rollups.TABLE, null, null);
+            db.setTransactionSuccessful();
+            return deleted;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /** One row per month from {@code fromMonth} (inclusive) to {@code toMonth} (exclusive), "yyyy-MM" or null. */
+    public List<Totals> monthlyTotals(String fromMonth, String toMonth) {
+        return Rollups.query(getReadableDatabase(), Rollups.BY_MONTH, fromMonth, toMonth);
+    }
+
+    /** Totals per category over the months in range, largest sent total first. */
+    public List<Totals> categoryTotals(String fromMonth, String toMonth) {
+        return Rollups.query(getReadableDatabase(), Rollups.BY_CATEGORY, fromMonth, toMonth);
+    }
+
+    /** Totals per contact over the months in range, largest sent total first. */
+    public List<Totals> contactTotals(String fromMonth, String toMonth) {
+        return Rollups.query(getReadableDatabase(), Rollups.BY_CONTACT, fromMonth, toMonth);
+    }
+
+    private static boolean insertCounted(SQLiteDatabase db, Rollups rollups, CapturedTransaction tx) {
+        if (db.insertWithOnConflict(TABLE, null, toValues(tx), SQLiteDatabase.CONFLICT_IGNORE) == -1) return false;
+        rollups.add(tx.type, tx.amountCents, tx.dateMs, tx.contact, tx.category, 1);
+        return true;
+    }
+
+    private static ContentValues toValues(CapturedTransaction tx) {
+        ContentValues values = new ContentValues();
+        values.put("id", tx.id);
+        values.put("event_key", tx.eventKey);
+        values.put("type", tx.type);
+        values.put("amount_cents", tx.amountCents);
+        values.put("date_ms", tx.dateMs);
+        values.put("contact", tx.contact);
+        values.put("description", tx.description);
+        values.put("category", tx.category);
+        values.put("source", tx.source);
+        values.put("channel", tx.channel);
+        if (tx.sources != null) values.put("sources", TextUtils.join(SOURCE_SEPARATOR, tx.sources));
+        return values;
+    }
+
+    private static CapturedTransaction fromCursor(Cursor c) {
+        CapturedTransaction tx = new CapturedTransaction();
+        tx.id = c.getString(0);
+        tx.eventKey = c.getString(1);
+        tx.type = c.getString(2);
+        tx.amountCents = c.getLong(3);
+        tx.dateMs = c.getLong(4);
+        tx.contact = c.getString(5);
+        tx.description = c.getString(6);
+        tx.category = c.getString(7);
+        tx.source = c.getString(8);
+        tx.channel = c.getString(9);
+        String sources = c.getString(10);
+        if (sources != null) tx.sources = splitSources(sources);
+        return tx;
+    }
+
+    private static List<String> splitSources(String joined) {
+        if (TextUtils.isEmpty(joined)) return new ArrayList<>(2);
+        return new ArrayList<>(Arrays.asList(joined.split(SOURCE_SEPARATOR)));
+    }
+}
@@ -0,0 +1,70 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.accessibility;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture.TransactionParser;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class ScreenReadsTest {
+    private static final int WINDOW = 7;
+
+    @Test
+    public void changedAmountIsParsedWithItsSiblingKeywords() {
+        AccessibilityNodeInfo root = AccessibilityNodeInfo.obtain();
+        node(root, "Pix enviado");
+        node(root, "Maria Lima");
+        AccessibilityNodeInfo amount = node(root, "Carregando");
+
+        ScreenTextCollector collector = new ScreenTextCollector();
+        ScreenReads reads = new ScreenReads();
+        collector.collect(root);
+        assertTrue(reads.record(WINDOW, collector.text()));
+
+        // Only the amount view changes
+        amount.setText("R$ 20,00");
+        collector.collect(amount);
+        assertFalse("the subtree alone has no transfer wording",
+            TransactionParser.isScreenTransaction(TransactionParser.parse(collector.text(), null)));
+        assertTrue(reads.showsNewText(WINDOW, collector.text()));
+
+        AccessibilityNodeInfo windowRoot = BankAccessibilityService.windowRootOf(AccessibilityNodeInfo.obtain(amount));
+        collector.collect(windowRoot);
+        assertTrue(reads.record(WINDOW, collector.text()));
+        TransactionParser.Result parsed = TransactionParser.parse(collector.text(), null);
+        assertTrue(TransactionParser.isScreenTransaction(parsed));
+        assertEquals(TransactionParser.SENT, parsed.direction);
+        assertEquals(2_000, parsed.amountCents);
+    }
+
+    @Test
+    public void subtreeAlreadyOnScreenIsNotReadAgain() {
+        ScreenReads reads = new ScreenReads();
+        assertTrue(reads.showsNewText(WINDOW, "Maria Lima "));
+        reads.record(WINDOW, "Pix enviado Maria Lima R$ 20,00 ");
+
+        assertFalse(reads.showsNewText(WINDOW, "Maria Lima "));
+        assertFalse(reads.showsNewText(WINDOW, ""));
+        // Matched node for node, so a shorter amount is new text
+        assertTrue(reads.showsNewText(WINDOW, "R$ 2 "));
+        assertTrue(reads.showsNewText(WINDOW + 1, "Maria Lima "));
+
+        assertFalse(reads.record(WINDOW, "Pix enviado Maria Lima R$ 20,00 "));
+        assertTrue(reads.record(WINDOW, "Pix enviado Maria Lima R$ 25,00 "));
+    }
+
+    private static AccessibilityNodeInfo node(AccessibilityNodeInfo parent, String text) {
+        AccessibilityNodeInfo child = AccessibilityNodeInfo.obtain();
+        child.setText(text);
+        shadowOf(parent).addChild(child);
+        return child;
+    }
+}
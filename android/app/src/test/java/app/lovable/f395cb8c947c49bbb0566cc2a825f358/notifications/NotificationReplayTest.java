@@ -0,0 +1,362 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.notifications;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import android.app.Notification;
+import android.content.Context;
+import android.os.Process;
+import android.service.notification.StatusBarNotification;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ServiceController;
+import org.robolectric.annotation.Config;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture.CaptureBus;
+import app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture.CapturedTransaction;
+import app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture.RepostFilter;
+
+/**
+ * Replays notification traces through {@link BankNotificationListenerService#onNotificationPosted}
+ * over the whole capture path: pre-filter, ingest lanes, parsing, the shared ingest queue,
+ * journal, history store and {@link CaptureBus}. The default run posts a short synthetic trace and
+ * checks that every payment reaches the bus exactly once.
+ *
+ * <p>The load run is opt-in: it replays at a fixed rate and reports throughput, latency and heap
+ * growth, and runs only when {@code -PreplayRate=500} (notifications per second, 1-500) or
+ * {@code -PreplayTrace=/path/trace.tsv} is given; {@code -PreplayCount=2000} sizes the synthetic
+ * trace. Latency is taken from the post to the bus callback, which is where the plugin hands a
+ * capture to the main thread for notifyListeners; the plugin's batch window comes on top of it.
+ * A recorded trace has one notification per line:
+ * {@code kind<TAB>package<TAB>id<TAB>title<TAB>text}, where kind is tx, promo, chat, summary or
+ * repost, and summary lines are separated by " | ". A repost re-posts the last notification with
+ * the same package and id.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class NotificationReplayTest {
+    private static final int FUNCTIONAL_COUNT = 100;
+    private static final int DEFAULT_RATE = 100;
+    private static final int DEFAULT_COUNT = 600;
+    private static final long QUIET_PERIOD_MS = 2000;
+    private static final long DRAIN_TIMEOUT_MS = 30_000;
+
+    enum Kind { TX, PROMO, CHAT, SUMMARY, REPOST }
+
+    static final class Entry {
+        final Kind kind;
+        final String pkg;
+        final int id;
+        final String title;
+        final String text;
+        final String[] lines; // summaries only
+        int logicalId = -1; // the payment this notification reports, shared by its reposts
+
+        Entry(Kind kind, String pkg, int id, String title, String text, String[] lines) {
+            this.kind = kind;
+            this.pkg = pkg;
+            this.id = id;
+            this.title = title;
+            this.text = text;
+            this.lines = lines;
+        }
+    }
+
+    private ServiceController<BankNotificationListenerService> controller;
+    private CaptureBus.Subscription subscription;
+
+    @After
+    public void tearDown() {
+        if (subscription != null) subscription.close();
+        if (controller != null) controller.destroy();
+    }
+
+    @Test
+    public void everyPaymentIsDeliveredOnce() throws Exception {
+        // Posted back to back; shorter than an ingest lane, so nothing may be dropped
+        Replay replay = replay(syntheticTrace(FUNCTIONAL_COUNT, new Random(42)), 0);
+
+        assertTrue("the trace has no payments", replay.expected > 0);
+        assertEquals("ingest dropped notifications", 0, replay.dropped);
+        assertEquals("payments never delivered", 0, replay.missing());
+        assertEquals("payments delivered twice", 0, replay.duplicates.get());
+        assertEquals("captures that match no payment", 0, replay.unexpected.get());
+    }
+
+    @Test
+    public void replayAtRate() throws Exception {
+        String tracePath = System.getProperty("replayTrace");
+        assumeTrue("load replay runs with -PreplayRate or -PreplayTrace",
+            System.getProperty("replayRate") != null || tracePath != null);
+        int rate = Math.max(1, Math.min(500, Integer.getInteger("replayRate", DEFAULT_RATE)));
+        List<Entry> trace = tracePath != null
+            ? readTrace(tracePath)
+            : syntheticTrace(Integer.getInteger("replayCount", DEFAULT_COUNT), new Random(42));
+
+        Runtime runtime = Runtime.getRuntime();
+        long heapBefore = usedHeap(runtime);
+        Replay replay = replay(trace, rate);
+        long heapAfter = usedHeap(runtime);
+
+        int samples = (int) Math.min(replay.latencyCount.get(), replay.latencies.length);
+        long[] sorted = Arrays.copyOf(replay.latencies, samples);
+        Arrays.sort(sorted);
+        double seconds = (replay.end - replay.start) / 1e9;
+
+        System.out.println(String.format(Locale.ROOT,
+            "=== Notification replay: %d posted at %d/s (%s) ===%n"
+                + "  expected payments     %d%n"
+                + "  delivered payments    %d (%.1f/s)%n"
+                + "  missing payments      %d%n"
+                + "  dropped by ingest     %d%n"
+                + "  skipped reposts       %d%n"
+                + "  duplicates            %d%n"
+                + "  unexpected captures   %d%n"
+                + "  latency p50 / p99     %.2f / %.2f ms (max %.2f ms)%n"
+                + "  heap growth           %d KB",
+            trace.size(), rate, tracePath != null ? tracePath : "synthetic",
+            replay.expected, replay.delivered.size(), replay.delivered.size() / seconds, replay.missing(),
+            replay.dropped, replay.skippedReposts, replay.duplicates.get(), replay.unexpected.get(),
+            percentileMs(sorted, 0.50), percentileMs(sorted, 0.99),
+            samples > 0 ? sorted[samples - 1] / 1e6 : 0.0,
+            (heapAfter - heapBefore) / 1024));
+
+        assertTrue("no payment reached the bus", replay.delivered.size() > 0);
+        if (rate <= DEFAULT_RATE) {
+            assertEquals("ingest dropped notifications at " + rate + "/s", 0, replay.dropped);
+            assertEquals("payments never delivered at " + rate + "/s", 0, replay.missing());
+            assertEquals("captures that match no payment at " + rate + "/s", 0, replay.unexpected.get());
+        }
+    }
+
+    /** What one run of a trace delivered to the bus. */
+    private static final class Replay {
+        int expected;
+        final Set<Integer> delivered = ConcurrentHashMap.newKeySet();
+        final AtomicLong duplicates = new AtomicLong();
+        final AtomicLong unexpected = new AtomicLong();
+        final AtomicLong latencyCount = new AtomicLong();
+        long[] latencies;
+        long start;
+        long end;
+        long dropped;
+        long skippedReposts;
+
+        int missing() {
+            return expected - delivered.size();
+        }
+    }
+
+    /**
+     * Posts {@code trace} to a fresh service, {@code rate} notifications per second or back to back
+     * when 0, and waits for every expected payment or for the pipeline to go quiet.
+     */
+    private Replay replay(List<Entry> trace, int rate) throws Exception {
+        Replay replay = new Replay();
+        replay.expected = assignLogicalIds(trace);
+        replay.latencies = new long[trace.size()];
+
+        controller = Robolectric.buildService(BankNotificationListenerService.class).create();
+        BankNotificationListenerService service = controller.get();
+        Context context = service.getApplicationContext();
+
+        // eventKey -> {post nanos, logical id}, registered before the post so the bus can find it
+        Map<String, long[]> posted = new ConcurrentHashMap<>();
+        AtomicLong lastDelivery = new AtomicLong(System.nanoTime());
+        subscription = CaptureBus.get().subscribe(tx -> {
+            long now = System.nanoTime();
+            lastDelivery.set(now);
+            long[] post = posted.get(tx.eventKey);
+            if (post == null) {
+                // Not a post of ours, e.g. a summary line (pkg:id:line:hash#n)
+                replay.unexpected.incrementAndGet();
+                return;
+            }
+            int slot = (int) replay.latencyCount.getAndIncrement();
+            if (slot < replay.latencies.length) replay.latencies[slot] = now - post[0];
+            int logicalId = (int) post[1];
+            if (logicalId < 0) {
+                replay.unexpected.incrementAndGet();
+            } else if (!replay.delivered.add(logicalId)) {
+                replay.duplicates.incrementAndGet();
+            }
+        });
+
+        long intervalNanos = rate > 0 ? TimeUnit.SECONDS.toNanos(1) / rate : 0;
+        replay.start = System.nanoTime();
+        long lastPostTime = 0;
+        for (int i = 0; i < trace.size(); i++) {
+            long wait = replay.start + i * intervalNanos - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+
+            Entry e = trace.get(i);
+            // Strictly increasing, so every post gets its own eventKey as on a device
+            long postTime = Math.max(System.currentTimeMillis(), lastPostTime + 1);
+            lastPostTime = postTime;
+            posted.put(e.pkg + ":" + e.id + ":" + postTime, new long[] { System.nanoTime(), e.logicalId });
+            service.onNotificationPosted(toStatusBarNotification(context, e, postTime));
+        }
+        long postedAt = System.nanoTime();
+
+        long deadline = postedAt + TimeUnit.MILLISECONDS.toNanos(DRAIN_TIMEOUT_MS);
+        while (replay.delivered.size() < replay.expected && System.nanoTime() < deadline
+                && System.nanoTime() - lastDelivery.get() < TimeUnit.MILLISECONDS.toNanos(QUIET_PERIOD_MS)) {
+            Thread.sleep(10);
+        }
+        replay.end = Math.max(lastDelivery.get(), postedAt);
+
+        NotificationIngest ingest = ReflectionHelpers.getField(service, "ingest");
+        RepostFilter reposts = ReflectionHelpers.getField(service, "reposts");
+        replay.dropped = ingest.droppedCount();
+        replay.skippedReposts = reposts.skippedCount();
+        return replay;
+    }
+
+    private static StatusBarNotification toStatusBarNotification(Context context, Entry e, long postTime) {
+        Notification.Builder builder = new Notification.Builder(context, "replay")
+            .setContentTitle(e.title)
+            .setContentText(e.text)
+            .setWhen(postTime);
+        if (e.kind == Kind.SUMMARY) {
+            Notification.InboxStyle inbox = new Notification.InboxStyle();
+            for (String line : e.lines) inbox.addLine(line);
+            builder.setStyle(inbox).setGroup(e.pkg + ".group").setGroupSummary(true);
+        } else if (e.text.length() > 60) {
+            builder.setStyle(new Notification.BigTextStyle().bigText(e.text));
+        }
+        return new StatusBarNotification(e.pkg, e.pkg, e.id, null, Process.myUid(), Process.myPid(),
+            builder.build(), Process.myUserHandle(), null, postTime);
+    }
+
+    /** Gives each payment a logical id, and each repost the id of the notification it repeats. */
+    private static int assignLogicalIds(List<Entry> trace) {
+        Map<String, Entry> last = new HashMap<>();
+        int payments = 0;
+        for (Entry e : trace) {
+            String key = e.pkg + ":" + e.id;
+            if (e.kind == Kind.TX) {
+                e.logicalId = payments++;
+            } else if (e.kind == Kind.REPOST) {
+                Entry original = last.get(key);
+                if (original != null) e.logicalId = original.logicalId;
+            }
+            last.put(key, e);
+        }
+        return payments;
+    }
+
+    private static final String[][] BANKS = {
+        { "com.nu.production", "Você recebeu uma transferência de %s e o valor de R$ %s já está disponível.", "Pix enviado: R$ %2$s para %1$s foi enviado com sucesso." },
+        { "com.c6bank.app", "Você recebeu um Pix de R$ %2$s de %1$s.", "Pix de R$ %2$s enviado para %1$s foi concluído." },
+        { "com.itau", "Pix recebido de R$ %2$s de %1$s.", "Pix enviado de R$ %2$s para %1$s." },
+        { "br.com.intermedium", "Você recebeu um Pix de R$ %2$s de %1$s.", "Pix enviado de R$ %2$s para %1$s." },
+    };
+    private static final String[] NAMES = {
+        "MARIA APARECIDA SOUZA", "Joao Pedro Almeida", "Fernanda Gomes", "CARLOS EDUARDO LIMA", "Ana Beatriz Rocha",
+        "Lucas Martins Silva", "Juliana Costa", "PAULO HENRIQUE DIAS"
+    };
+    private static final String[] PROMOS = {
+        "Seu limite do cartão agora é de R$ 4.500,00. Aproveite!",
+        "Seu CDB rendeu R$ 12,44 este mês.",
+        "Fatura fechada: o valor de R$ 1.870,33 vence dia 10.",
+        "Atualize o app para continuar usando o Pix."
+    };
+    private static final String[][] CHATS = {
+        { "com.whatsapp", "Mãe", "Filho, fiz o pix de R$ 50,00 pra você, viu?" },
+        { "com.whatsapp", "Grupo Família", "Tio Zé: alguém tem o pix da vaquinha?" },
+        { "com.whatsapp", "Pedro", "kkkkkkk" },
+        { "org.telegram.messenger", "Canal Ofertas", "PIX de R$ 10 de desconto em toda a loja!" },
+        { "com.instagram.android", "Instagram", "lucas.ferreira curtiu sua foto." },
+        { "com.google.android.gm", "Banco Inter", "Seu extrato de outubro está disponível." },
+        { "com.ifood.ifoodapp", "iFood", "Seu pedido saiu para entrega! Valor total R$ 58,90." },
+    };
+
+    /** A deterministic mix of payments, promos, chat, group summaries and reposts. */
+    static List<Entry> syntheticTrace(int count, Random random) {
+        List<Entry> trace = new ArrayList<>(count);
+        List<Entry> payments = new ArrayList<>();
+        int nextId = 1;
+        for (int i = 0; i < count; i++) {
+            int roll = random.nextInt(100);
+            Entry e;
+            if (roll < 30) {
+                String[] bank = BANKS[random.nextInt(BANKS.length)];
+                boolean received = random.nextBoolean();
+                // Distinct amounts keep unrelated payments from being correlated into one
+                long cents = 1_000 + 37L * i;
+                String amount = String.format(Locale.ROOT, "%d,%02d", cents / 100, cents % 100);
+                String name = NAMES[random.nextInt(NAMES.length)];
+                e = new Entry(Kind.TX, bank[0], nextId++, received ? "Pix recebido" : "Pix enviado",
+                    String.format(received ? bank[1] : bank[2], name, amount), null);
+                payments.add(e);
+            } else if (roll < 40) {
+                String[] bank = BANKS[random.nextInt(BANKS.length)];
+                e = new Entry(Kind.PROMO, bank[0], nextId++, "Novidade", PROMOS[random.nextInt(PROMOS.length)], null);
+            } else if (roll < 80) {
+                String[] chat = CHATS[random.nextInt(CHATS.length)];
+                e = new Entry(Kind.CHAT, chat[0], nextId++, chat[1], chat[2], null);
+            } else if (roll < 90) {
+                String[] chat = CHATS[random.nextInt(3)];
+                String[] lines = { chat[1] + ": " + chat[2], "Pedro: kkkkkkk", "Ana: bom dia" };
+                e = new Entry(Kind.SUMMARY, chat[0], 0, lines.length + " mensagens", lines[0], lines);
+            } else if (!payments.isEmpty()) {
+                Entry original = payments.get(random.nextInt(payments.size()));
+                e = new Entry(Kind.REPOST, original.pkg, original.id, original.title, original.text, null);
+            } else {
+                continue;
+            }
+            trace.add(e);
+        }
+        return trace;
+    }
+
+    static List<Entry> readTrace(String path) throws IOException {
+        List<Entry> trace = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(path), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] f = line.split("\t", 5);
+                Kind kind = Kind.valueOf(f[0].toUpperCase(Locale.ROOT));
+                String[] lines = kind == Kind.SUMMARY ? f[4].split(" \\| ") : null;
+                trace.add(new Entry(kind, f[1], Integer.parseInt(f[2]), f[3], lines != null ? lines[0] : f[4], lines));
+            }
+        }
+        return trace;
+    }
+
+    private static long usedHeap(Runtime runtime) throws InterruptedException {
+        System.gc();
+        Thread.sleep(50);
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static double percentileMs(long[] sorted, double p) {
+        if (sorted.length == 0) return 0.0;
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+    }
+}
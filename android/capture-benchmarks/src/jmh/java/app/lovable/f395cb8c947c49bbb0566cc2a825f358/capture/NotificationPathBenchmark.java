@@ -0,0 +1,147 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cost per notification of the listener's path through the core: the pre-filter on the callback
+ * thread, then classification on the ingest worker. Each invocation handles the next
+ * notification of one corpus slice, so ns/op and the gc profiler's B/op are per notification.
+ *
+ * <p>The corpus is split at setup by what the real path does with each entry: accepted as a
+ * transaction, rejected by the pre-filter, or let through by the pre-filter and rejected by the
+ * parser.
+ */
+@State(Scope.Thread)
+public class NotificationPathBenchmark {
+    private static final String OWN_PACKAGE = "app.lovable.f395cb8c947c49bbb0566cc2a825f358";
+    private static final long NOW = 1760450000000L;
+
+    static final class Notification {
+        final String pkg;
+        final int id;
+        final String title;
+        final String text;
+
+        Notification(String pkg, int id, String title, String text) {
+            this.pkg = pkg;
+            this.id = id;
+            this.title = title;
+            this.text = text;
+        }
+    }
+
+    private FinancialPreFilter preFilter;
+    private NotificationClassifier classifier;
+    private Notification[] accepted;
+    private Notification[] rejectedByFilter;
+    private Notification[] rejectedByParser;
+    private int acceptedNext;
+    private int filterNext;
+    private int parserNext;
+
+    @Setup
+    public void setUp() throws Exception {
+        List<BankProfile.Spec> specs = new ArrayList<>();
+        List<String> hints = new ArrayList<>();
+        BankProfileFile.parse(readResource("bank_profiles.json"), specs, hints);
+        ProfileRegistry profiles = new ProfileRegistry();
+        profiles.replace(BankProfiles.compile(specs, hints));
+        preFilter = new FinancialPreFilter(OWN_PACKAGE, profiles);
+        classifier = new NotificationClassifier(profiles);
+
+        List<Notification> accept = new ArrayList<>();
+        List<Notification> filterReject = new ArrayList<>();
+        List<Notification> parserReject = new ArrayList<>();
+        for (Notification n : readCorpus()) {
+            if (!preFilter.accept(n.pkg, n.title, n.text, null, null)) {
+                filterReject.add(n);
+            } else if (classify(n) == null) {
+                parserReject.add(n);
+            } else {
+                accept.add(n);
+            }
+        }
+        if (accept.isEmpty() || filterReject.isEmpty() || parserReject.isEmpty()) {
+            throw new IllegalStateException("Corpus must exercise every path: " + accept.size() + " accepted, "
+                + filterReject.size() + " filtered, " + parserReject.size() + " parsed and rejected");
+        }
+        accepted = accept.toArray(new Notification[0]);
+        rejectedByFilter = filterReject.toArray(new Notification[0]);
+        rejectedByParser = parserReject.toArray(new Notification[0]);
+    }
+
+    /** A bank notification that becomes a transaction. */
+    @Benchmark
+    public CapturedTransaction accept() {
+        Notification n = accepted[acceptedNext];
+        if (++acceptedNext == accepted.length) acceptedNext = 0;
+        return handle(n);
+    }
+
+    /** Chat, system and media notifications turned away before anything is copied. */
+    @Benchmark
+    public CapturedTransaction rejectAtFilter() {
+        Notification n = rejectedByFilter[filterNext];
+        if (++filterNext == rejectedByFilter.length) filterNext = 0;
+        return handle(n);
+    }
+
+    /** Bank promos and financial-sounding text that pass the filter but are not transactions. */
+    @Benchmark
+    public CapturedTransaction rejectAtParser() {
+        Notification n = rejectedByParser[parserNext];
+        if (++parserNext == rejectedByParser.length) parserNext = 0;
+        return handle(n);
+    }
+
+    private CapturedTransaction handle(Notification n) {
+        if (!preFilter.accept(n.pkg, n.title, n.text, null, null)) return null;
+        return classify(n);
+    }
+
+    private CapturedTransaction classify(Notification n) {
+        return classifier.classify(n.pkg, n.id, NOW, n.title, n.text, "", null, NOW);
+    }
+
+    private static List<Notification> readCorpus() throws IOException {
+        List<Notification> corpus = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                open("notifications.tsv"), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] fields = line.split("\t", 3);
+                corpus.add(new Notification(fields[0], corpus.size(), fields[1], fields[2]));
+            }
+        }
+        return corpus;
+    }
+
+    private static String readResource(String name) throws IOException {
+        try (InputStream in = open(name)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) > 0) out.write(buffer, 0, n);
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static InputStream open(String name) throws IOException {
+        InputStream in = NotificationPathBenchmark.class.getClassLoader().getResourceAsStream(name);
+        if (in == null) throw new IOException("Missing resource " + name);
+        return in;
+    }
+}
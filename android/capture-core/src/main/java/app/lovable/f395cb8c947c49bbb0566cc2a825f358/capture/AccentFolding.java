@@ -0,0 +1,34 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+/**
+ * Char-for-char lowercasing and diacritic stripping for the Latin-1 range, which covers
+ * Portuguese. Folding never changes the length of a string, so offsets into folded text are
+ * offsets into the original.
+ */
+public final class AccentFolding {
+    private static final char[] LATIN1 = new char[256];
+    static {
+        for (int c = 0; c < 256; c++) LATIN1[c] = (char) c;
+        for (int c = 'A'; c <= 'Z'; c++) LATIN1[c] = (char) (c + 32);
+        map("ÀÁÂÃÄÅàáâãäå", 'a');
+        map("Çç", 'c');
+        map("ÈÉÊËèéêë", 'e');
+        map("ÌÍÎÏìíîï", 'i');
+        map("Ññ", 'n');
+        map("ÒÓÔÕÖØòóôõöø", 'o');
+        map("ÙÚÛÜùúûü", 'u');
+        map("Ýýÿ", 'y');
+        LATIN1[' '] = ' '; // NBSP
+    }
+
+    private AccentFolding() {}
+
+    private static void map(String from, char to) {
+        for (int i = 0; i < from.length(); i++) LATIN1[from.charAt(i)] = to;
+    }
+
+    public static char fold(char c) {
+        if (c < 256) return LATIN1[c];
+        return Character.toLowerCase(c);
+    }
+}
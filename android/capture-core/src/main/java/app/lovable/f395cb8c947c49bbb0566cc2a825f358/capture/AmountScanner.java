@@ -0,0 +1,145 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+/**
+ * Single-pass, allocation-free scanner for money amounts in Brazilian (1.234,56) and
+ * international (1,234.56) notation, producing exact integer centavos.
+ *
+ * <p>A candidate is a run of digits, dots and commas not preceded by one of those chars. Within a
+ * run the formats are tried in this order, each anchored at the start of the run and not followed
+ * by a digit: international with thousands groups, plain international, Brazilian with thousands
+ * groups, plain Brazilian with one or two decimals. An amount prefixed with R$ in Brazilian
+ * notation with two decimals wins over a bare one; bare international amounts are ignored.
+ */
+public final class AmountScanner {
+    // Above this the amount is not a payment and would overflow the centavos arithmetic
+    private static final int MAX_INTEGER_DIGITS = 15;
+
+    private static final int RANK_NONE = Integer.MAX_VALUE;
+
+    private static final int FORMAT_INTERNATIONAL = 0;
+    private static final int FORMAT_BRAZILIAN = 1;
+    private static final int FORMAT_BRAZILIAN_ONE_DECIMAL = 2;
+
+    private AmountScanner() {}
+
+    /** Returns the best amount in {@code text} in centavos, or 0 when there is none. */
+    public static long scanCents(CharSequence text) {
+        if (text == null) return 0;
+        long bestCents = 0;
+        int bestRank = RANK_NONE;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            if (!isDigit(text.charAt(i)) || (i > 0 && isNumberChar(text.charAt(i - 1)))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            // Everything up to the end of this run is preceded by a number char, so skip it
+            while (i < length && isNumberChar(text.charAt(i))) i++;
+
+            long parsed = parseAt(text, start, length);
+            if (parsed < 0) continue;
+            long cents = parsed >>> 2;
+            int format = (int) (parsed & 3);
+            boolean brazilian = format != FORMAT_INTERNATIONAL;
+            boolean twoDecimals = format != FORMAT_BRAZILIAN_ONE_DECIMAL;
+            boolean prefixed = hasCurrencyPrefix(text, start);
+
+            int rank;
+            if (brazilian && twoDecimals) rank = prefixed ? 0 : 1;
+            else if (!prefixed) continue;
+            else rank = brazilian ? 2 : 3;
+            if (rank >= bestRank || cents <= 0) continue;
+            bestCents = cents;
+            bestRank = rank;
+            if (rank == 0) break;
+        }
+        return bestCents;
+    }
+
+    /**
+     * Parses the number starting at {@code start}. Returns -1 when no format matches, otherwise
+     * the centavos shifted left by two with the format in the low bits, so nothing is allocated.
+     */
+    private static long parseAt(CharSequence text, int start, int length) {
+        int lead = start;
+        long units = 0;
+        while (lead < length && isDigit(text.charAt(lead))) {
+            if (lead - start == MAX_INTEGER_DIGITS) return -1;
+            units = units * 10 + (text.charAt(lead) - '0');
+            lead++;
+        }
+        int leadDigits = lead - start;
+
+        // International: 1,234.56 then 1234.56
+        long cents = grouped(text, lead, length, leadDigits, units, ',', '.');
+        if (cents >= 0) return cents << 2 | FORMAT_INTERNATIONAL;
+        cents = decimals(text, lead, length, units, '.', 2, 2);
+        if (cents >= 0) return cents << 2 | FORMAT_INTERNATIONAL;
+
+        // Brazilian: 1.234,56 then 1234,56 or 1234,5
+        cents = grouped(text, lead, length, leadDigits, units, '.', ',');
+        if (cents >= 0) return cents << 2 | FORMAT_BRAZILIAN;
+        cents = decimals(text, lead, length, units, ',', 1, 2);
+        if (cents >= 0) {
+            boolean oneDecimal = lead + 2 >= length || !isDigit(text.charAt(lead + 2));
+            return cents << 2 | (oneDecimal ? FORMAT_BRAZILIAN_ONE_DECIMAL : FORMAT_BRAZILIAN);
+        }
+        return -1;
+    }
+
+    /** Matches ({group}ddd)+{decimal}dd after a lead of one to three digits. */
+    private static long grouped(CharSequence text, int pos, int length, int leadDigits, long units,
+                                char group, char decimal) {
+        if (leadDigits > 3) return -1;
+        int groups = 0;
+        while (pos + 3 < length && text.charAt(pos) == group && isDigit(text.charAt(pos + 1))
+                && isDigit(text.charAt(pos + 2)) && isDigit(text.charAt(pos + 3))) {
+            if (leadDigits + 3 * (groups + 1) > MAX_INTEGER_DIGITS) return -1;
+            units = units * 1000 + (text.charAt(pos + 1) - '0') * 100 + (text.charAt(pos + 2) - '0') * 10
+                + (text.charAt(pos + 3) - '0');
+            pos += 4;
+            groups++;
+        }
+        if (groups == 0) return -1;
+        return decimals(text, pos, length, units, decimal, 2, 2);
+    }
+
+    /** Matches {decimal} followed by exactly min..max digits, not followed by another digit. */
+    private static long decimals(CharSequence text, int pos, int length, long units, char decimal,
+                                 int min, int max) {
+        if (pos >= length || text.charAt(pos) != decimal) return -1;
+        pos++;
+        int digits = 0;
+        long fraction = 0;
+        while (pos < length && isDigit(text.charAt(pos))) {
+            if (++digits > max) return -1;
+            fraction = fraction * 10 + (text.charAt(pos) - '0');
+            pos++;
+        }
+        if (digits < min) return -1;
+        if (digits == 1) fraction *= 10;
+        return units * 100 + fraction;
+    }
+
+    /** True when "R$" (either case of R), optionally followed by whitespace, precedes {@code start}. */
+    private static boolean hasCurrencyPrefix(CharSequence text, int start) {
+        int i = start - 1;
+        while (i >= 0 && isWhitespace(text.charAt(i))) i--;
+        return i >= 1 && text.charAt(i) == '$' && (text.charAt(i - 1) == 'R' || text.charAt(i - 1) == 'r');
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isNumberChar(char c) {
+        return isDigit(c) || c == '.' || c == ',';
+    }
+
+    // Same set as \s in java.util.regex
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+}
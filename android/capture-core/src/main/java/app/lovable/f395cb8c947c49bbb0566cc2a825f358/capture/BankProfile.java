@@ -0,0 +1,204 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parsing rules for one bank or family of apps, compiled once from a declarative {@link Spec}.
+ *
+ * <p>All of a profile's keywords share one {@link KeywordAutomaton}, so direction, PIX and
+ * financial terms are found in a single pass per field. Counterparty rules run in
+ * {@link ContactExtractor}'s bounded time, are tried in order and fall back to
+ * {@link TransactionParser#extractContact}; the amount always comes from
+ * {@link AmountScanner}. {@link #GENERIC} applies the parser's built-in rules to apps without a
+ * profile.
+ */
+public final class BankProfile {
+
+    /** Uncompiled rules as read from a profile file. Keywords are single words, matched accent- and case-insensitively. */
+    public static final class Spec {
+        public String id;
+        public String label;
+        public List<String> packages = new ArrayList<>();
+        public List<String> sent = new ArrayList<>();
+        public List<String> received = new ArrayList<>();
+        /** Terms that mark a notification as a transaction; empty when the package alone is enough. */
+        public List<String> financial = new ArrayList<>();
+        /** Where the counterparty name sits, tried in order. */
+        public List<Counterparty> counterparty = new ArrayList<>();
+        /** Regex with groups day, month and optionally year, hour and minute; null when the bank shows no date. */
+        public String date;
+    }
+
+    /** The name follows the phrase {@code after} and ends before one of {@code until}, a '.' or ',', or the end. */
+    public static final class Counterparty {
+        public String after;
+        public List<String> until = new ArrayList<>();
+    }
+
+    public static final BankProfile GENERIC = new BankProfile("generic", null, null, 0L, 0L, 0L, 0L, 0L,
+        new ContactExtractor.Rule[0], null);
+
+    private static final String PIX = "pix";
+    // Card and statement terms: financial, but not a transfer on their own
+    private static final List<String> LEDGER_TERMS = Arrays.asList("debito", "credito");
+    private static final long MAX_FUTURE_SKEW_MS = 24L * 60 * 60 * 1000;
+
+    public final String id;
+    public final String label;
+
+    private final KeywordAutomaton keywords; // null for GENERIC
+    private final long sentMask;
+    private final long receivedMask;
+    private final long financialMask;
+    private final long pixMask;
+    private final long transferMask;
+    private final ContactExtractor.Rule[] counterparty;
+    private final Pattern date;
+
+    private BankProfile(String id, String label, KeywordAutomaton keywords, long sentMask, long receivedMask,
+                        long financialMask, long pixMask, long transferMask, ContactExtractor.Rule[] counterparty,
+                        Pattern date) {
+        this.id = id;
+        this.label = label;
+        this.keywords = keywords;
+        this.sentMask = sentMask;
+        this.receivedMask = receivedMask;
+        this.financialMask = financialMask;
+        this.pixMask = pixMask;
+        this.transferMask = transferMask;
+        this.counterparty = counterparty;
+        this.date = date;
+    }
+
+    /** Throws IllegalArgumentException naming the profile when a rule is missing or malformed. */
+    public static BankProfile compile(Spec spec) {
+        if (spec.id == null || spec.id.isEmpty()) throw new IllegalArgumentException("Profile without id");
+        if (spec.packages.isEmpty()) throw new IllegalArgumentException("Profile " + spec.id + ": no packages");
+        if (spec.sent.isEmpty() && spec.received.isEmpty()) {
+            throw new IllegalArgumentException("Profile " + spec.id + ": no direction keywords");
+        }
+        try {
+            KeywordAutomaton.Builder builder = new KeywordAutomaton.Builder();
+            Map<String, Integer> ids = new HashMap<>();
+            long sent = mask(builder, ids, spec.sent);
+            long received = mask(builder, ids, spec.received);
+            long financial = mask(builder, ids, spec.financial);
+            long pix = mask(builder, ids, Collections.singletonList(PIX));
+            long ledger = 0L;
+            for (String term : LEDGER_TERMS) {
+                Integer id = ids.get(term);
+                if (id != null) ledger |= 1L << id;
+            }
+
+            ContactExtractor.Rule[] counterparty = new ContactExtractor.Rule[spec.counterparty.size()];
+            for (int i = 0; i < counterparty.length; i++) {
+                Counterparty rule = spec.counterparty.get(i);
+                counterparty[i] = new ContactExtractor.Rule(rule.after, rule.until);
+            }
+            Pattern date = spec.date != null ? Pattern.compile(spec.date, Pattern.CASE_INSENSITIVE) : null;
+            return new BankProfile(spec.id, spec.label, builder.build(), sent, received, financial, pix,
+                (sent | received | financial | pix) & ~ledger, counterparty, date);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            throw new IllegalArgumentException("Profile " + spec.id + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static long mask(KeywordAutomaton.Builder builder, Map<String, Integer> ids, List<String> words) {
+        long mask = 0L;
+        for (String word : words) {
+            String key = word.toLowerCase(Locale.ROOT);
+            Integer id = ids.get(key);
+            if (id == null) {
+                id = builder.add(word, false);
+                ids.put(key, id);
+            }
+            mask |= 1L << id;
+        }
+        return mask;
+    }
+
+    /**
+     * Parses a notification body or screen dump with this profile's rules. The title contributes
+     * to keyword, direction and amount detection but never to the counterparty. A date found in
+     * the text is resolved against {@code referenceMs}, the time the text was posted.
+     */
+    public TransactionParser.Result parse(String content, String title, long referenceMs) {
+        return parse(NormalizedText.forThread().of(title, content, null, null), referenceMs);
+    }
+
+    /** Same as {@link #parse(String, String, long)}, reading the views of already normalized text. */
+    public TransactionParser.Result parse(NormalizedText text, long referenceMs) {
+        if (keywords == null) return TransactionParser.parse(text);
+
+        TransactionParser.Result result = new TransactionParser.Result();
+        // The space between content and title resets the automaton, so one pass covers both
+        long found = keywords.scan(text.foldedAll());
+        // Sent keywords take precedence, as in the generic rules
+        result.direction = (found & sentMask) != 0 ? TransactionParser.SENT
+            : (found & receivedMask) != 0 ? TransactionParser.RECEIVED : null;
+        result.mentionsPix = (found & pixMask) != 0;
+        result.financial = financialMask == 0L || (found & financialMask) != 0;
+        result.transfer = (found & transferMask) != 0;
+        result.amountCents = AmountScanner.scanCents(text.all());
+        result.contact = extractContact(text.content());
+        result.dateMs = extractDate(text.content(), referenceMs);
+        return result;
+    }
+
+    String extractContact(CharSequence content) {
+        String name = ContactExtractor.extract(content, counterparty);
+        return name != null ? name : TransactionParser.extractContact(content);
+    }
+
+    /** Returns the epoch ms of the date in {@code content}, or 0 when there is none or it is implausible. */
+    private long extractDate(CharSequence content, long referenceMs) {
+        if (date == null) return 0L;
+        Matcher m = date.matcher(content);
+        if (!m.find()) return 0L;
+        int groups = m.groupCount();
+        int day = intGroup(m, 1, groups, -1);
+        int month = intGroup(m, 2, groups, -1);
+        if (day < 1 || day > 31 || month < 1 || month > 12) return 0L;
+
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(referenceMs);
+        int year = intGroup(m, 3, groups, cal.get(Calendar.YEAR));
+        if (year < 100) year += 2000;
+        int hour = intGroup(m, 4, groups, -1);
+        int minute = intGroup(m, 5, groups, 0);
+        if (hour > 23 || minute > 59) return 0L;
+        if (hour < 0) {
+            // A bare date on the posting day says less than the post time itself
+            if (day == cal.get(Calendar.DAY_OF_MONTH) && month - 1 == cal.get(Calendar.MONTH)) return 0L;
+            hour = 0;
+        }
+        cal.clear();
+        cal.set(year, month - 1, day, hour, minute, 0);
+        long ms = cal.getTimeInMillis();
+
+        // A yearless date past the reference belongs to last year (a December statement read in January)
+        if (ms > referenceMs + MAX_FUTURE_SKEW_MS && (groups < 3 || m.group(3) == null)) {
+            cal.add(Calendar.YEAR, -1);
+            ms = cal.getTimeInMillis();
+        }
+        return ms > referenceMs + MAX_FUTURE_SKEW_MS ? 0L : ms;
+    }
+
+    private static int intGroup(Matcher m, int group, int groups, int fallback) {
+        if (group > groups || m.group(group) == null) return fallback;
+        try {
+            return Integer.parseInt(m.group(group));
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.List;
+
+/**
+ * Reads the JSON profile format: {@code {"version": 1, "packageHints": [...], "profiles": [...]}},
+ * each profile carrying the fields of {@link BankProfile.Spec}. org.json comes with Android; JVM
+ * consumers of this module bring their own copy.
+ */
+public final class BankProfileFile {
+    private static final int SUPPORTED_VERSION = 1;
+
+    private BankProfileFile() {}
+
+    /** Appends the profiles and package hints in {@code json} to the lists. */
+    public static void parse(String json, List<BankProfile.Spec> specs, List<String> hints) throws JSONException {
+        JSONObject root = new JSONObject(json);
+        int version = root.optInt("version", SUPPORTED_VERSION);
+        if (version != SUPPORTED_VERSION) throw new JSONException("Unsupported profile version " + version);
+
+        addStrings(root.optJSONArray("packageHints"), hints);
+        JSONArray profiles = root.optJSONArray("profiles");
+        if (profiles == null) return;
+        for (int i = 0; i < profiles.length(); i++) {
+            JSONObject o = profiles.getJSONObject(i);
+            BankProfile.Spec spec = new BankProfile.Spec();
+            spec.id = o.getString("id");
+            spec.label = o.optString("label", spec.id);
+            addStrings(o.optJSONArray("packages"), spec.packages);
+            addStrings(o.optJSONArray("sent"), spec.sent);
+            addStrings(o.optJSONArray("received"), spec.received);
+            addStrings(o.optJSONArray("financial"), spec.financial);
+            JSONArray counterparty = o.optJSONArray("counterparty");
+            if (counterparty != null) {
+                for (int j = 0; j < counterparty.length(); j++) {
+                    JSONObject r = counterparty.getJSONObject(j);
+                    BankProfile.Counterparty rule = new BankProfile.Counterparty();
+                    rule.after = r.getString("after");
+                    addStrings(r.optJSONArray("until"), rule.until);
+                    spec.counterparty.add(rule);
+                }
+            }
+            spec.date = o.has("date") ? o.getString("date") : null;
+            specs.add(spec);
+        }
+    }
+
+    private static void addStrings(JSONArray array, List<String> out) throws JSONException {
+        if (array == null) return;
+        for (int i = 0; i < array.length(); i++) out.add(array.getString(i));
+    }
+}
@@ -0,0 +1,82 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An immutable, compiled set of {@link BankProfile}s dispatched by package name, so a
+ * notification only pays for its own bank's rules.
+ *
+ * <p>Lookup tries the package itself and then each parent package ("com.itau.empresas" falls back
+ * to "com.itau"): one hash lookup per segment. Package hints are substrings that mark an app as a
+ * bank for screen reading even without a profile of its own.
+ */
+public final class BankProfiles {
+    public static final BankProfiles EMPTY = new BankProfiles(new HashMap<>(), new String[0], 0);
+
+    private final Map<String, BankProfile> byPackage;
+    private final String[] packageHints;
+    private final int profileCount;
+
+    private BankProfiles(Map<String, BankProfile> byPackage, String[] packageHints, int profileCount) {
+        this.byPackage = byPackage;
+        this.packageHints = packageHints;
+        this.profileCount = profileCount;
+    }
+
+    /**
+     * Compiles {@code specs} in order; a later spec with the same id replaces an earlier one, which
+     * is how a user file overrides the bundled profiles. Throws IllegalArgumentException on the
+     * first malformed profile.
+     */
+    public static BankProfiles compile(List<BankProfile.Spec> specs, List<String> packageHints) {
+        Map<String, BankProfile.Spec> byId = new LinkedHashMap<>();
+        for (BankProfile.Spec spec : specs) byId.put(spec.id, spec);
+
+        Map<String, BankProfile> byPackage = new HashMap<>();
+        for (BankProfile.Spec spec : byId.values()) {
+            BankProfile profile = BankProfile.compile(spec);
+            for (String pkg : spec.packages) byPackage.put(pkg, profile);
+        }
+        String[] hints = new String[packageHints.size()];
+        for (int i = 0; i < hints.length; i++) hints[i] = packageHints.get(i).toLowerCase(Locale.ROOT);
+        return new BankProfiles(byPackage, hints, byId.size());
+    }
+
+    /** The profile covering {@code pkg} or one of its parent packages, or null. */
+    public BankProfile forPackage(String pkg) {
+        if (pkg == null || pkg.isEmpty()) return null;
+        String candidate = pkg;
+        while (true) {
+            BankProfile profile = byPackage.get(candidate);
+            if (profile != null) return profile;
+            int dot = candidate.lastIndexOf('.');
+            if (dot <= 0) return null;
+            candidate = candidate.substring(0, dot);
+        }
+    }
+
+    /** Like {@link #forPackage}, but falls back to {@link BankProfile#GENERIC}. */
+    public BankProfile profileFor(String pkg) {
+        BankProfile profile = forPackage(pkg);
+        return profile != null ? profile : BankProfile.GENERIC;
+    }
+
+    /** Whether {@code pkg} has a profile or matches one of the package hints. */
+    public boolean isBankApp(String pkg) {
+        if (forPackage(pkg) != null) return true;
+        if (pkg == null || packageHints.length == 0) return false;
+        String lower = pkg.toLowerCase(Locale.ROOT);
+        for (String hint : packageHints) {
+            if (lower.contains(hint)) return true;
+        }
+        return false;
+    }
+
+    public int size() {
+        return profileCount;
+    }
+}
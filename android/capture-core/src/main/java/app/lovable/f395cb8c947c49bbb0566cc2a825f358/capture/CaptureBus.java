@@ -0,0 +1,103 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process hub between the capture services and the plugins. Replaces system broadcasts, so a
+ * capture never leaves the process and nothing outside the app can inject one.
+ *
+ * <p>Producers enqueue on a lock-free queue from any thread; whichever producer finds the bus idle
+ * delivers everything queued, in order, to every subscriber, so a subscriber is never called
+ * concurrently with itself. Subscribers must only hand the event off to their own thread.
+ *
+ * <p>Every published capture is already in the {@link EventJournal} feed, which is the handoff
+ * when nobody is subscribed: the web layer picks it up with readSince on its next start.
+ */
+public final class CaptureBus {
+
+    public interface Subscriber {
+        void onCapture(CapturedTransaction tx);
+    }
+
+    /** Returned by {@link #subscribe}; closing it stops delivery. */
+    public interface Subscription extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static final CaptureBus INSTANCE = new CaptureBus();
+
+    private final CopyOnWriteArrayList<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ConcurrentLinkedQueue<CapturedTransaction> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean delivering = new AtomicBoolean();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong unobserved = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    /** Process-wide bus. */
+    public static CaptureBus get() {
+        return INSTANCE;
+    }
+
+    public Subscription subscribe(Subscriber subscriber) {
+        subscribers.add(subscriber);
+        return () -> subscribers.remove(subscriber);
+    }
+
+    public boolean hasSubscribers() {
+        return !subscribers.isEmpty();
+    }
+
+    /**
+     * Publishes a persisted capture. Returns false when no subscriber is alive, in which case the
+     * event is dropped here and left to the journal feed.
+     */
+    public boolean publish(CapturedTransaction tx) {
+        published.incrementAndGet();
+        if (subscribers.isEmpty()) {
+            unobserved.incrementAndGet();
+            return false;
+        }
+        queue.offer(tx);
+        deliver();
+        return true;
+    }
+
+    private void deliver() {
+        // Re-check after releasing: a producer may have enqueued while we were finishing up
+        while (!queue.isEmpty() && delivering.compareAndSet(false, true)) {
+            try {
+                CapturedTransaction tx;
+                while ((tx = queue.poll()) != null) {
+                    for (Subscriber s : subscribers) {
+                        try {
+                            s.onCapture(tx);
+                        } catch (RuntimeException e) {
+                            // One broken subscriber must not starve the others
+                            failed.incrementAndGet();
+                        }
+                    }
+                }
+            } finally {
+                delivering.set(false);
+            }
+        }
+    }
+
+    public long publishedCount() {
+        return published.get();
+    }
+
+    /** Captures published while nobody was subscribed. */
+    public long unobservedCount() {
+        return unobserved.get();
+    }
+
+    /** Deliveries a subscriber threw on. */
+    public long failedCount() {
+        return failed.get();
+    }
+}
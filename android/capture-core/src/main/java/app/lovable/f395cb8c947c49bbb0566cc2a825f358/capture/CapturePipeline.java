@@ -0,0 +1,90 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single entry point for captures from every channel: dedupe by event key, correlation across
+ * channels, then persistence in the journal and, when one is attached, the history sink.
+ */
+public final class CapturePipeline {
+
+    public enum Outcome {
+        /** New canonical capture, persisted; deliver it to the web layer. */
+        STORED,
+        /** Same event key seen before; nothing persisted. */
+        DUPLICATE,
+        /** Another channel already captured this payment; recorded as provenance only. */
+        MERGED
+    }
+
+    private final EventJournal journal;
+    private final TransactionSink sink;
+    private final TransactionCorrelator correlator = new TransactionCorrelator();
+
+    public CapturePipeline(EventJournal journal) {
+        this(journal, null);
+    }
+
+    public CapturePipeline(EventJournal journal, TransactionSink sink) {
+        this.journal = journal;
+        this.sink = sink;
+    }
+
+    public EventJournal journal() {
+        return journal;
+    }
+
+    public synchronized Outcome submit(CapturedTransaction tx) throws IOException {
+        Outcome outcome = route(tx);
+        if (outcome == Outcome.STORED && sink != null) sink.insert(tx);
+        return outcome;
+    }
+
+    /**
+     * Submits the captures read from one notification. Each is deduped and correlated as by
+     * {@link #submit}, and the new canonical ones reach the sink in a single write. Outcomes are
+     * in input order.
+     */
+    public synchronized Outcome[] submitAll(List<CapturedTransaction> txs) throws IOException {
+        Outcome[] outcomes = new Outcome[txs.size()];
+        List<CapturedTransaction> stored = new ArrayList<>(txs.size());
+        for (int i = 0; i < outcomes.length; i++) {
+            CapturedTransaction tx = txs.get(i);
+            outcomes[i] = route(tx);
+            if (outcomes[i] == Outcome.STORED) stored.add(tx);
+        }
+        if (sink != null && !stored.isEmpty()) sink.insertAll(stored);
+        return outcomes;
+    }
+
+    // Journals tx unless it is a duplicate; a new canonical capture is left for the caller to sink
+    private Outcome route(CapturedTransaction tx) throws IOException {
+        if (journal.containsEventKey(tx.eventKey)) return Outcome.DUPLICATE;
+        if (tx.channel == null) {
+            journal.append(tx);
+            return Outcome.STORED;
+        }
+        if (tx.sources == null) {
+            tx.sources = new ArrayList<>(2);
+            tx.sources.add(tx.provenance());
+        }
+
+        CapturedTransaction canonical = correlator.correlate(tx, System.currentTimeMillis());
+        if (canonical == null) {
+            journal.append(tx);
+            return Outcome.STORED;
+        }
+
+        tx.correlatedWith = canonical.id;
+        // Persisted so a feed page that still holds the canonical record can report both sources
+        journal.append(tx);
+        // A summary line and the child it repeats share their provenance
+        if (!canonical.sources.contains(tx.provenance())) {
+            canonical.sources.add(tx.provenance());
+            if (sink != null) sink.addSource(canonical.id, tx.provenance());
+        }
+        return Outcome.MERGED;
+    }
+}
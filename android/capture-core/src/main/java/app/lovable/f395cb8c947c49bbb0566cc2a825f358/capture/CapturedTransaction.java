@@ -0,0 +1,48 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A transaction captured from a notification or a banking app screen.
+ */
+public class CapturedTransaction {
+    public static final String CHANNEL_NOTIFICATION = "notification";
+    public static final String CHANNEL_ACCESSIBILITY = "accessibility";
+
+    public String eventKey; // stable key for dedupe
+    public String id;
+    public String type; // received | sent
+    public long amountCents; // exact; amount() is the legacy double view
+    public long dateMs;
+    public String contact;
+    public String description;
+    public String source; // package name
+    public String channel; // notification | accessibility
+    public List<String> sources; // provenance: "channel:package" of every capture of this payment
+    public String correlatedWith; // canonical id when this capture only adds provenance
+    public String category; // user-assigned; only set on records read back from the history store
+    public boolean summaryLine; // read from one line of an inbox or group-summary notification; not persisted
+
+    public double amount() {
+        return amountCents / 100.0;
+    }
+
+    public String provenance() {
+        return channel + ":" + source;
+    }
+
+    public boolean hasChannel(String other) {
+        if (sources == null || other == null) return false;
+        for (String s : sources) {
+            if (s.startsWith(other + ":")) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "CapturedTransaction{type=%s, amount=%.2f, contact=%s, source=%s}",
+            type, amount(), contact, source);
+    }
+}
@@ -0,0 +1,329 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+import java.util.List;
+
+/**
+ * Linear-time counterparty extractor. Only the first {@link #MAX_INPUT_CHARS} chars are read, so
+ * a whole-screen dump costs no more than a notification body.
+ *
+ * <p>The keyword rules run one after another over the whole text, as the separate regular
+ * expressions they replaced did: first "para", then "recebido de" / "recebido(a) de", then "de"
+ * (ASCII, any case, at a word start). Each is followed by whitespace, an optional quote (not after
+ * "para") and a run of letters, apostrophes and whitespace, of which the first {@link #MAX_CAPTURE} chars are the
+ * candidate. The candidate ends before a word that cannot be part of a name ("no valor de R$",
+ * "em 12/03", "para ..."), and the first one that survives {@link TransactionParser#cleanName}
+ * wins. So "de joão para maria" gives "maria", and "Pix de JOAO SILVA no valor de R$ 5,00" gives
+ * "JOAO SILVA". When no keyword yields a name, a last pass returns the first run of two or more
+ * all-caps words. Each pass touches a char a bounded number of times.
+ *
+ * <p>Bank profiles add their own {@link Rule}s, which run in the same bounded time.
+ */
+final class ContactExtractor {
+    static final int MAX_INPUT_CHARS = 8 * 1024;
+
+    // Longest candidate taken after a keyword; cleanName rejects anything longer anyway
+    private static final int MAX_CAPTURE = 80;
+
+    private static final int RULE_PARA = 0;
+    private static final int RULE_RECEIVED_FROM = 1;
+    private static final int RULE_FROM = 2;
+
+    // Words that end a candidate: what follows the name in "de FULANO no valor de R$", "em 12/03"
+    private static final String[] STOP_WORDS = { "no", "na", "em", "valor", "para" };
+
+    private static final String CAPITALS_EXTRA = "ÁÉÍÓÚÀÂÊÔÃÕÇ";
+
+    private ContactExtractor() {}
+
+    /**
+     * A bank profile's counterparty rule: the name follows the phrase {@code after} and
+     * whitespace, and is the shortest run of two to {@link #MAX_CAPTURE} name chars followed by
+     * whitespace and one of the phrases {@code until}, by a '.' or ',', or by the end of the text.
+     * Phrases are matched accent- and case-insensitively, a space standing for one whitespace char.
+     */
+    static final class Rule {
+        final String after;
+        final String[] until;
+
+        Rule(String after, List<String> until) {
+            if (after == null || after.trim().isEmpty()) throw new IllegalArgumentException("Counterparty rule without 'after'");
+            this.after = fold(after.trim());
+            this.until = new String[until.size()];
+            for (int i = 0; i < this.until.length; i++) this.until[i] = fold(until.get(i).trim());
+        }
+    }
+
+    /**
+     * Returns the name found by the first of {@code rules} to match, or null. As with a regular
+     * expression, each rule takes its first match, and a name that fails
+     * {@link TransactionParser#cleanName} moves on to the next rule.
+     */
+    static String extract(CharSequence text, Rule[] rules) {
+        if (text == null) return null;
+        int length = Math.min(text.length(), MAX_INPUT_CHARS);
+        for (Rule rule : rules) {
+            String name = firstMatch(text, length, rule);
+            if (name != null) return name;
+        }
+        return null;
+    }
+
+    private static String firstMatch(CharSequence text, int length, Rule rule) {
+        for (int i = 0; i < length; i++) {
+            if (i > 0 && isWordChar(text.charAt(i - 1))) continue;
+            int phraseEnd = matchFolded(text, i, length, rule.after);
+            if (phraseEnd < 0) continue;
+            int start = skipSpaces(text, phraseEnd, length);
+            if (start == phraseEnd) continue;
+            int end = nameBefore(text, start, length, rule.until);
+            if (end >= 0) return TransactionParser.cleanName(text.subSequence(start, end).toString());
+        }
+        return null;
+    }
+
+    /** End of the shortest name at {@code start} that is followed by an ending, or -1. */
+    private static int nameBefore(CharSequence text, int start, int length, String[] until) {
+        int limit = Math.min(length, start + MAX_CAPTURE);
+        int i = start;
+        while (i <= limit) {
+            if (i == length) return i - start >= 2 ? i : -1;
+            char c = text.charAt(i);
+            if ((c == '.' || c == ',') && i - start >= 2) return i;
+            if (isSpace(c)) {
+                // Every space in the run is followed by the same word: test it once
+                int word = skipSpaces(text, i, length);
+                int end = Math.max(i, start + 2);
+                if (end < word && end <= limit && endsName(text, word, length, until)) return end;
+                i = word;
+                continue;
+            }
+            if (!isNameChar(c)) return -1;
+            i++;
+        }
+        return -1;
+    }
+
+    private static boolean endsName(CharSequence text, int at, int length, String[] until) {
+        for (String phrase : until) {
+            int end = matchFolded(text, at, length, phrase);
+            if (end >= 0 && (end == length || !isWordChar(text.charAt(end)))) return true;
+        }
+        return false;
+    }
+
+    /** Matches folded {@code phrase} at {@code at}; returns the index after it or -1. */
+    private static int matchFolded(CharSequence text, int at, int length, String phrase) {
+        int end = at + phrase.length();
+        if (end > length) return -1;
+        for (int k = 0; k < phrase.length(); k++) {
+            char c = text.charAt(at + k);
+            char p = phrase.charAt(k);
+            if (p == ' ' ? !isSpace(c) : AccentFolding.fold(c) != p) return -1;
+        }
+        return end;
+    }
+
+    private static String fold(String phrase) {
+        StringBuilder folded = new StringBuilder(phrase.length());
+        for (int i = 0; i < phrase.length(); i++) {
+            char c = phrase.charAt(i);
+            folded.append(isSpace(c) ? ' ' : AccentFolding.fold(c));
+        }
+        return folded.toString();
+    }
+
+    /** Returns the counterparty in {@code text}, or null when there is none. */
+    static String extract(CharSequence text) {
+        if (text == null) return null;
+        int length = Math.min(text.length(), MAX_INPUT_CHARS);
+        for (int rule = RULE_PARA; rule <= RULE_FROM; rule++) {
+            String name = afterKeyword(text, length, rule);
+            if (name != null) return name;
+        }
+        return firstCapitalizedRun(text, length);
+    }
+
+    private static String afterKeyword(CharSequence text, int length, int rule) {
+        int i = 0;
+        while (i < length) {
+            if (!isWordChar(text.charAt(i)) || (i > 0 && isWordChar(text.charAt(i - 1)))) {
+                i++;
+                continue;
+            }
+            int spaceStart;
+            if (rule == RULE_PARA) {
+                spaceStart = keyword(text, i, length, "para");
+            } else if (rule == RULE_RECEIVED_FROM) {
+                spaceStart = matchReceivedFrom(text, i, length);
+            } else {
+                spaceStart = keyword(text, i, length, "de");
+            }
+            long span = spaceStart >= 0 ? captureAfter(text, spaceStart, length, rule != RULE_PARA) : -1;
+            if (span < 0) {
+                i++;
+                continue;
+            }
+            int start = (int) (span >>> 32);
+            int end = (int) span;
+            i = end;
+            String name = TransactionParser.cleanName(text.subSequence(start, nameEnd(text, start, end, length)).toString());
+            if (name != null) return name;
+        }
+        return null;
+    }
+
+    /**
+     * Where the name in the candidate [start, end) ends: before a trailing "R" that is the start of
+     * "R$", then before the first stop word.
+     */
+    private static int nameEnd(CharSequence text, int start, int end, int length) {
+        if (end < length && text.charAt(end) == '$' && end - 1 >= start
+                && (text.charAt(end - 1) == 'R' || text.charAt(end - 1) == 'r')
+                && (end - 1 == start || isSpace(text.charAt(end - 2)))) {
+            end--;
+        }
+        int i = start;
+        while (i < end) {
+            if (isSpace(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            int wordEnd = i;
+            while (wordEnd < end && !isSpace(text.charAt(wordEnd))) wordEnd++;
+            for (String stop : STOP_WORDS) {
+                if (wordEnd - i == stop.length() && matchAt(text, i, wordEnd, stop) >= 0) return i;
+            }
+            i = wordEnd;
+        }
+        return end;
+    }
+
+    /** "recebido", optionally "(a)", whitespace and "de"; returns the index after "de" or -1. */
+    private static int matchReceivedFrom(CharSequence text, int at, int length) {
+        int i = matchAt(text, at, length, "recebido");
+        if (i < 0) return -1;
+        int marker = matchAt(text, i, length, "(a)");
+        if (marker >= 0) i = marker;
+        int word = skipSpaces(text, i, length);
+        if (word == i) return -1;
+        return keyword(text, word, length, "de");
+    }
+
+    /**
+     * Locates the candidate after a keyword ending at {@code at}: at least one whitespace char, an
+     * optional quote when {@code quoted}, then at least two name chars. Returns start and end packed into a long, or -1.
+     * When the run after the spaces is too short, the quote and then the trailing spaces are given
+     * back to the run, as the regular expression's backtracking did.
+     */
+    private static long captureAfter(CharSequence text, int at, int length, boolean quoted) {
+        int spacesEnd = skipSpaces(text, at, length);
+        if (spacesEnd == at) return -1;
+        int start = -1;
+        if (quoted && spacesEnd < length && isQuote(text.charAt(spacesEnd))
+                && nameRun(text, spacesEnd + 1, length) >= 2) {
+            start = spacesEnd + 1;
+        } else if (nameRun(text, spacesEnd, length) >= 2) {
+            start = spacesEnd;
+        } else if (spacesEnd - 1 > at && nameRun(text, spacesEnd - 1, length) >= 2) {
+            start = spacesEnd - 1;
+        } else if (spacesEnd - 2 > at) {
+            start = spacesEnd - 2;
+        }
+        if (start < 0) return -1;
+        int end = start + nameRun(text, start, length);
+        return ((long) start << 32) | end;
+    }
+
+    /** Length of the run of name chars at {@code from}, capped at {@link #MAX_CAPTURE}. */
+    private static int nameRun(CharSequence text, int from, int length) {
+        int limit = Math.min(length, from + MAX_CAPTURE);
+        int i = from;
+        while (i < limit && isNameChar(text.charAt(i))) i++;
+        return i - from;
+    }
+
+    /**
+     * First run of capital-only words, at least two of them, each of two or more letters and
+     * separated by whitespace. A run that fails to clean is skipped.
+     */
+    private static String firstCapitalizedRun(CharSequence text, int length) {
+        int i = 0;
+        while (i < length) {
+            if (!isCapital(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            int wordEnd = capitalsEnd(text, i, length);
+            i = wordEnd;
+            if (wordEnd - start < 2) continue;
+            int end = wordEnd;
+            int words = 1;
+            while (true) {
+                int next = skipSpaces(text, end, length);
+                if (next == end) break;
+                int nextEnd = capitalsEnd(text, next, length);
+                if (nextEnd - next < 2) break;
+                end = nextEnd;
+                words++;
+            }
+            if (words < 2) continue;
+            String name = TransactionParser.cleanName(text.subSequence(start, end).toString());
+            if (name != null) return name;
+            i = end;
+        }
+        return null;
+    }
+
+    private static int capitalsEnd(CharSequence text, int from, int length) {
+        int i = from;
+        while (i < length && isCapital(text.charAt(i))) i++;
+        return i;
+    }
+
+    /** Returns the index after {@code word} when it is followed by whitespace, or -1. */
+    private static int keyword(CharSequence text, int at, int length, String word) {
+        int end = matchAt(text, at, length, word);
+        return end >= 0 && end < length && isSpace(text.charAt(end)) ? end : -1;
+    }
+
+    /** Matches lowercase ASCII {@code word} at {@code at}, ignoring ASCII case only. */
+    private static int matchAt(CharSequence text, int at, int length, String word) {
+        int end = at + word.length();
+        if (end > length) return -1;
+        for (int k = 0; k < word.length(); k++) {
+            char c = text.charAt(at + k);
+            char w = word.charAt(k);
+            if (c != w && !(c >= 'A' && c <= 'Z' && c + ('a' - 'A') == w)) return -1;
+        }
+        return end;
+    }
+
+    private static int skipSpaces(CharSequence text, int from, int length) {
+        int i = from;
+        while (i < length && isSpace(text.charAt(i))) i++;
+        return i;
+    }
+
+    // Same set as \s in java.util.regex
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean isWordChar(char c) {
+        return c == '_' || Character.isLetterOrDigit(c);
+    }
+
+    private static boolean isQuote(char c) {
+        return c == '\'' || c == '"';
+    }
+
+    private static boolean isNameChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= 'À' && c <= 'ÿ')
+            || c == '\'' || isSpace(c);
+    }
+
+    private static boolean isCapital(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'À' && CAPITALS_EXTRA.indexOf(c) >= 0);
+    }
+}
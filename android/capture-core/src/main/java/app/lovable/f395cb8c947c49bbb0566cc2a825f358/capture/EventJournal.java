@@ -0,0 +1,484 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of captured transactions, shared by every producer in the process, read by
+ * the web layer as a sequence-numbered change feed.
+ *
+ * <p>Each record is a fixed 12-byte header (magic, payload length, CRC32 of the payload) followed
+ * by the payload fields in a fixed order. The magic doubles as the record version; records written
+ * before amounts were kept in centavos, or before records carried a sequence number, are still
+ * read. Appends only touch the tail of the file. On open the journal is scanned once and anything
+ * after the last intact record (a write torn by process death) is truncated away.
+ *
+ * <p>Readers page through records with {@link #readSince} and call {@link #ack} once they have
+ * committed a page. Only acknowledged records are ever removed, so nothing captured between a read
+ * and an acknowledgement is lost. The acknowledged sequence number lives in a sidecar file; space
+ * is reclaimed by truncation once everything is acknowledged, or by rewriting the unacknowledged
+ * tail once enough acknowledged records pile up at the head.
+ *
+ * <p>The keys of recent events are kept for deduplication after their records are gone: before
+ * acknowledged records are removed, the recent-key window is written to a second sidecar, and on
+ * open it is read back before the keys of the records still in the file are added.
+ */
+public final class EventJournal {
+    private static final int MAGIC = 0x424A4E33; // "BJN3": sequence number, amount in centavos
+    private static final int MAGIC_V2 = 0x424A4E32; // "BJN2": amount in centavos, no sequence number
+    private static final int MAGIC_V1 = 0x424A4E31; // "BJN1": amount as a double, no sequence number
+    private static final int KEYS_MAGIC = 0x424A4B31; // "BJK1": recent-key window
+    private static final int HEADER_SIZE = 12;
+    private static final int MAX_PAYLOAD = 64 * 1024;
+    private static final int MAX_STRING_CHARS = 8 * 1024; // keeps writeUTF under its 64KB limit
+    private static final int RECENT_KEYS = 4096;
+    private static final long RECENT_KEYS_MAX_AGE_MS = 7L * 24 * 60 * 60 * 1000;
+    // Rewrite the file once acknowledged records at its head take this much space
+    private static final long COMPACT_THRESHOLD_BYTES = 64 * 1024;
+
+    private static final Map<String, EventJournal> OPEN = new HashMap<>();
+
+    /** A bounded slice of the feed. */
+    public static final class Page {
+        /** Canonical records, with provenance records in the same page folded in. */
+        public final List<CapturedTransaction> events;
+        /** Sequence number of the last record read; pass it to the next read and to {@link #ack}. */
+        public final long cursor;
+        public final boolean hasMore;
+
+        Page(List<CapturedTransaction> events, long cursor, boolean hasMore) {
+            this.events = events;
+            this.cursor = cursor;
+            this.hasMore = hasMore;
+        }
+    }
+
+    private interface RecordVisitor {
+        void visit(long seq, long offset, CapturedTransaction tx);
+    }
+
+    private final File file;
+    private final File ackFile;
+    private final File keysFile;
+    private RandomAccessFile raf;
+    // Outlives acknowledgement, through the keys sidecar, so an event already handed to the web
+    // layer is not enqueued again
+    private final EventKeyIndex recentKeys = new EventKeyIndex(RECENT_KEYS, RECENT_KEYS_MAX_AGE_MS);
+    private long size;
+    // Sequence number and file offset of every record in the file, in file order
+    private long[] seqs = new long[64];
+    private long[] offsets = new long[64];
+    private int count;
+    private long nextSeq;
+    private long ackedSeq;
+    private byte[] readBuffer = new byte[256];
+
+    private EventJournal(File file) throws IOException {
+        this.file = file;
+        this.ackFile = new File(file.getPath() + ".ack");
+        this.keysFile = new File(file.getPath() + ".keys");
+        this.raf = new RandomAccessFile(file, "rw");
+        ackedSeq = readAckedSeq();
+        readRecentKeys();
+        recover();
+    }
+
+    /** Returns the journal for the given file, opening and recovering it on first use. */
+    public static synchronized EventJournal open(File file) throws IOException {
+        String path = file.getAbsolutePath();
+        EventJournal journal = OPEN.get(path);
+        if (journal == null) {
+            journal = new EventJournal(file);
+            OPEN.put(path, journal);
+        }
+        return journal;
+    }
+
+    /** Number of records in the file, acknowledged or not. */
+    public synchronized int size() {
+        return count;
+    }
+
+    /** Number of records not yet acknowledged. */
+    public synchronized int pending() {
+        return count - firstUnacked();
+    }
+
+    public synchronized void append(CapturedTransaction tx) throws IOException {
+        long seq = nextSeq;
+        byte[] record = encode(seq, tx);
+        raf.seek(size);
+        raf.write(record);
+        index(seq, size);
+        nextSeq++;
+        size += record.length;
+        recentKeys.add(tx.eventKey, tx.dateMs);
+    }
+
+    /** Appends the event unless its key was seen recently; returns false for a duplicate. */
+    public synchronized boolean appendIfAbsent(CapturedTransaction tx) throws IOException {
+        if (recentKeys.contains(tx.eventKey)) return false;
+        append(tx);
+        return true;
+    }
+
+    public synchronized boolean containsEventKey(String eventKey) {
+        return recentKeys.contains(eventKey);
+    }
+
+    public synchronized List<CapturedTransaction> readAll() throws IOException {
+        List<CapturedTransaction> out = new ArrayList<>(count);
+        scan(size, (seq, offset, tx) -> out.add(tx));
+        return out;
+    }
+
+    /**
+     * Returns up to {@code limit} records with a sequence number above {@code cursor}, oldest
+     * first. Provenance-only records are folded into a canonical record in the same page, or left
+     * out when it was delivered in an earlier one (the history store already carries its sources).
+     */
+    public synchronized Page readSince(long cursor, int limit) throws IOException {
+        int from = firstAfter(Math.max(cursor, ackedSeq));
+        int to = Math.min(count, from + Math.max(1, limit));
+        if (from >= to) return new Page(new ArrayList<>(0), Math.min(Math.max(cursor, ackedSeq), nextSeq - 1), false);
+
+        List<CapturedTransaction> records = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) records.add(readAt(i));
+        return new Page(fold(records), seqs[to - 1], to < count);
+    }
+
+    /**
+     * Marks every record up to {@code cursor} as delivered and reclaims their space. Stale cursors
+     * are ignored.
+     */
+    public synchronized void ack(long cursor) throws IOException {
+        long acked = Math.min(cursor, nextSeq - 1);
+        if (acked <= ackedSeq) return;
+        ackedSeq = acked;
+        writeAckedSeq(acked);
+
+        int firstUnacked = firstUnacked();
+        boolean reclaim = firstUnacked == count || offsets[firstUnacked] >= COMPACT_THRESHOLD_BYTES;
+        if (!reclaim) return;
+        // The keys of the records about to go must outlive them
+        writeRecentKeys();
+        if (firstUnacked == count) {
+            raf.setLength(0);
+            size = 0;
+            count = 0;
+        } else {
+            compact(firstUnacked);
+        }
+    }
+
+    static List<CapturedTransaction> fold(List<CapturedTransaction> records) {
+        Map<String, CapturedTransaction> canonicalById = new HashMap<>();
+        List<CapturedTransaction> out = new ArrayList<>(records.size());
+        for (CapturedTransaction tx : records) {
+            if (tx.correlatedWith == null) {
+                if (tx.id != null) canonicalById.put(tx.id, tx);
+                out.add(tx);
+                continue;
+            }
+            CapturedTransaction canonical = canonicalById.get(tx.correlatedWith);
+            if (canonical == null) continue;
+            if (canonical.sources == null) canonical.sources = new ArrayList<>(2);
+            String provenance = tx.provenance();
+            if (!canonical.sources.contains(provenance)) canonical.sources.add(provenance);
+        }
+        return out;
+    }
+
+    /**
+     * Rewrites the unacknowledged records starting at index {@code first} into a fresh file. The
+     * copy is synced before it replaces the journal, so a crash leaves either the old file or the
+     * complete new one.
+     */
+    private void compact(int first) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        long[] keptSeqs = new long[Math.max(64, count - first)];
+        long[] keptOffsets = new long[keptSeqs.length];
+        long written = 0;
+        int kept = 0;
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            for (int i = first; i < count; i++) {
+                // Re-encoded so records from older versions keep the sequence number they were given
+                byte[] record = encode(seqs[i], readAt(i));
+                out.write(record);
+                keptSeqs[kept] = seqs[i];
+                keptOffsets[kept] = written;
+                kept++;
+                written += record.length;
+            }
+            out.getFD().sync();
+        }
+        raf.close();
+        if (!tmp.renameTo(file)) throw new IOException("Failed to replace " + file);
+        syncDirectory(file.getAbsoluteFile().getParentFile());
+        raf = new RandomAccessFile(file, "rw");
+        seqs = keptSeqs;
+        offsets = keptOffsets;
+        count = kept;
+        size = written;
+    }
+
+    // Makes the rename itself durable where the platform allows opening a directory: java.nio.file
+    // is missing below Android 8, and some file systems refuse to sync a directory
+    private static void syncDirectory(File dir) {
+        if (dir == null) return;
+        try (FileChannel channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException | RuntimeException | LinkageError e) {
+            // The rename is still atomic; only its ordering against power loss is left to the kernel
+        }
+    }
+
+    /** Reads the already-verified record at index {@code i} of the file. */
+    private CapturedTransaction readAt(int i) throws IOException {
+        raf.seek(offsets[i]);
+        raf.readFully(readBuffer, 0, HEADER_SIZE);
+        int magic = readInt(readBuffer, 0);
+        int length = readInt(readBuffer, 4);
+        if (readBuffer.length < length) readBuffer = new byte[Math.max(length, HEADER_SIZE)];
+        raf.readFully(readBuffer, 0, length);
+        return decode(magic, readBuffer, length, null);
+    }
+
+    private void recover() throws IOException {
+        List<CapturedTransaction> records = new ArrayList<>();
+        count = 0;
+        long valid = scan(raf.length(), (seq, offset, tx) -> {
+            index(seq, offset);
+            records.add(tx);
+        });
+        if (valid < raf.length()) raf.setLength(valid);
+        size = valid;
+        nextSeq = Math.max(ackedSeq, count > 0 ? seqs[count - 1] : 0) + 1;
+        for (CapturedTransaction tx : records) recentKeys.add(tx.eventKey, tx.dateMs);
+    }
+
+    /** Reads intact records from the head of the file and returns the offset just past the last one. */
+    private long scan(long limit, RecordVisitor visitor) throws IOException {
+        long offset = 0;
+        // Records from before sequence numbers existed are numbered by position
+        long lastSeq = 0;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            DataInputStream data = new DataInputStream(in);
+            byte[] payload = new byte[256];
+            CRC32 crc = new CRC32();
+            long[] seq = new long[1];
+            while (offset + HEADER_SIZE <= limit) {
+                int magic;
+                int length;
+                int checksum;
+                try {
+                    magic = data.readInt();
+                    length = data.readInt();
+                    checksum = data.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if ((magic != MAGIC && magic != MAGIC_V2 && magic != MAGIC_V1) || length <= 0 || length > MAX_PAYLOAD) break;
+                if (offset + HEADER_SIZE + length > limit) break;
+                if (payload.length < length) payload = new byte[length];
+                try {
+                    data.readFully(payload, 0, length);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != checksum) break;
+
+                seq[0] = lastSeq + 1;
+                CapturedTransaction tx = decode(magic, payload, length, seq);
+                lastSeq = seq[0];
+                visitor.visit(lastSeq, offset, tx);
+                offset += HEADER_SIZE + length;
+            }
+        }
+        return offset;
+    }
+
+    private void index(long seq, long offset) {
+        if (count == seqs.length) {
+            seqs = Arrays.copyOf(seqs, count * 2);
+            offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        seqs[count] = seq;
+        offsets[count] = offset;
+        count++;
+    }
+
+    /** Index of the first record with a sequence number above {@code seq}. */
+    private int firstAfter(long seq) {
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (seqs[mid] <= seq) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private int firstUnacked() {
+        return firstAfter(ackedSeq);
+    }
+
+    // The sidecar holds the value and its complement, so a torn write reads as "nothing acked"
+    private long readAckedSeq() {
+        if (!ackFile.exists()) return 0;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(ackFile))) {
+            long value = in.readLong();
+            return in.readLong() == ~value ? value : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private void writeAckedSeq(long value) throws IOException {
+        try (RandomAccessFile out = new RandomAccessFile(ackFile, "rw")) {
+            out.writeLong(value);
+            out.writeLong(~value);
+            out.getFD().sync();
+        }
+    }
+
+    // Same header as a record; a torn or corrupt file reads as an empty window, and the history
+    // store's unique event keys still catch what it would have
+    private void readRecentKeys() {
+        if (!keysFile.exists()) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(keysFile)))) {
+            int magic = in.readInt();
+            int length = in.readInt();
+            int checksum = in.readInt();
+            if (magic != KEYS_MAGIC || length < 0 || length > keysFile.length()) return;
+            byte[] body = new byte[length];
+            in.readFully(body);
+            CRC32 crc = new CRC32();
+            crc.update(body, 0, length);
+            if ((int) crc.getValue() != checksum) return;
+            recentKeys.readFrom(new DataInputStream(new ByteArrayInputStream(body)));
+        } catch (IOException e) {
+            recentKeys.clear();
+        }
+    }
+
+    private void writeRecentKeys() throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(16 * recentKeys.size() + 4);
+        DataOutputStream bodyOut = new DataOutputStream(body);
+        recentKeys.writeTo(bodyOut);
+        bodyOut.flush();
+        byte[] bytes = body.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+
+        File tmp = new File(keysFile.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            DataOutputStream header = new DataOutputStream(out);
+            header.writeInt(KEYS_MAGIC);
+            header.writeInt(bytes.length);
+            header.writeInt((int) crc.getValue());
+            header.write(bytes);
+            header.flush();
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(keysFile)) throw new IOException("Failed to replace " + keysFile);
+        syncDirectory(keysFile.getAbsoluteFile().getParentFile());
+    }
+
+    private static byte[] encode(long seq, CapturedTransaction tx) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(body);
+        out.writeLong(seq);
+        writeString(out, tx.eventKey);
+        writeString(out, tx.id);
+        writeString(out, tx.type);
+        out.writeLong(tx.amountCents);
+        out.writeLong(tx.dateMs);
+        writeString(out, tx.contact);
+        writeString(out, tx.description);
+        writeString(out, tx.source);
+        // Fields below were added later; decode() treats them as optional
+        writeString(out, tx.channel);
+        writeString(out, tx.correlatedWith);
+        int sourceCount = tx.sources != null ? tx.sources.size() : 0;
+        out.writeShort(sourceCount);
+        for (int i = 0; i < sourceCount; i++) writeString(out, tx.sources.get(i));
+        out.flush();
+        byte[] payload = body.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        ByteArrayOutputStream record = new ByteArrayOutputStream(HEADER_SIZE + payload.length);
+        DataOutputStream header = new DataOutputStream(record);
+        header.writeInt(MAGIC);
+        header.writeInt(payload.length);
+        header.writeInt((int) crc.getValue());
+        header.write(payload);
+        header.flush();
+        return record.toByteArray();
+    }
+
+    /**
+     * Decodes a payload. When {@code seq} is non-null it holds the number to give a record from
+     * before sequence numbers, and receives the record's actual number.
+     */
+    private static CapturedTransaction decode(int magic, byte[] payload, int length, long[] seq) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload, 0, length));
+        if (magic == MAGIC) {
+            long recorded = in.readLong();
+            if (seq != null) seq[0] = recorded;
+        }
+        CapturedTransaction tx = new CapturedTransaction();
+        tx.eventKey = readString(in);
+        tx.id = readString(in);
+        tx.type = readString(in);
+        tx.amountCents = magic == MAGIC_V1 ? Math.round(in.readDouble() * 100) : in.readLong();
+        tx.dateMs = in.readLong();
+        tx.contact = readString(in);
+        tx.description = readString(in);
+        tx.source = readString(in);
+        if (in.available() > 0) {
+            tx.channel = readString(in);
+            tx.correlatedWith = readString(in);
+            int sourceCount = in.readUnsignedShort();
+            tx.sources = new ArrayList<>(sourceCount);
+            for (int i = 0; i < sourceCount; i++) tx.sources.add(readString(in));
+        }
+        return tx;
+    }
+
+    private static int readInt(byte[] b, int at) {
+        return (b[at] & 0xff) << 24 | (b[at + 1] & 0xff) << 16 | (b[at + 2] & 0xff) << 8 | (b[at + 3] & 0xff);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s == null) return;
+        out.writeUTF(s.length() > MAX_STRING_CHARS ? s.substring(0, MAX_STRING_CHARS) : s);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
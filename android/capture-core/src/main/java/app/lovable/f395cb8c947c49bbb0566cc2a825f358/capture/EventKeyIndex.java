@@ -0,0 +1,146 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Bounded set of recently seen event keys, stored as 64-bit digests in an open-addressing table.
+ *
+ * <p>Lookups and inserts are constant time. Keys are kept in insertion order in a ring so the
+ * oldest can be evicted once the set is full or older than {@code maxAgeMs}. The whole window can be
+ * written out and read back, so it survives a restart. Not thread-safe; callers synchronize.
+ */
+public final class EventKeyIndex {
+    private static final long EMPTY = 0L;
+
+    private final int capacity;
+    private final long maxAgeMs;
+    private final long[] table;
+    private final int mask;
+    private final long[] ring;
+    private final long[] ringTimes;
+    private int head;
+    private int size;
+
+    public EventKeyIndex(int capacity, long maxAgeMs) {
+        this.capacity = capacity;
+        this.maxAgeMs = maxAgeMs;
+        int tableSize = Integer.highestOneBit(Math.max(capacity, 2) * 2 - 1) << 1; // load factor <= 0.5
+        this.table = new long[tableSize];
+        this.mask = tableSize - 1;
+        this.ring = new long[capacity];
+        this.ringTimes = new long[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(String key) {
+        return key != null && indexOf(digest(key)) >= 0;
+    }
+
+    /** Adds the key seen at {@code timeMs}; returns false if it was already present. */
+    public boolean add(String key, long timeMs) {
+        if (key == null) return true;
+        return add(digest(key), timeMs);
+    }
+
+    private boolean add(long d, long timeMs) {
+        evictOlderThan(timeMs - maxAgeMs);
+        if (indexOf(d) >= 0) return false;
+        if (size == capacity) evictOldest();
+
+        int slot = (int) mix(d) & mask;
+        while (table[slot] != EMPTY) slot = (slot + 1) & mask;
+        table[slot] = d;
+        int tail = (head + size) % capacity;
+        ring[tail] = d;
+        ringTimes[tail] = timeMs;
+        size++;
+        return true;
+    }
+
+    /** Writes the entry count, then each digest and time, oldest first. */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            int at = (head + i) % capacity;
+            out.writeLong(ring[at]);
+            out.writeLong(ringTimes[at]);
+        }
+    }
+
+    /** Adds the entries written by {@link #writeTo}, subject to this index's own bounds. */
+    public void readFrom(DataInput in) throws IOException {
+        int entries = in.readInt();
+        if (entries < 0) throw new IOException("Bad entry count " + entries);
+        for (int i = 0; i < entries; i++) {
+            long d = in.readLong();
+            long timeMs = in.readLong();
+            if (d != EMPTY) add(d, timeMs);
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(table, EMPTY);
+        head = 0;
+        size = 0;
+    }
+
+    private void evictOlderThan(long cutoffMs) {
+        while (size > 0 && ringTimes[head] < cutoffMs) evictOldest();
+    }
+
+    private void evictOldest() {
+        remove(ring[head]);
+        head = (head + 1) % capacity;
+        size--;
+    }
+
+    private int indexOf(long d) {
+        int slot = (int) mix(d) & mask;
+        while (table[slot] != EMPTY) {
+            if (table[slot] == d) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Backward-shift deletion keeps linear probe chains intact without tombstones
+    private void remove(long d) {
+        int slot = indexOf(d);
+        if (slot < 0) return;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (table[next] != EMPTY) {
+            int home = (int) mix(table[next]) & mask;
+            boolean movable = gap <= next ? (home <= gap || home > next) : (home <= gap && home > next);
+            if (movable) {
+                table[gap] = table[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        table[gap] = EMPTY;
+    }
+
+    /** 64-bit FNV-1a over the key's chars; never returns the empty marker. */
+    static long digest(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h == EMPTY ? 1L : h;
+    }
+
+    static long mix(long d) {
+        d ^= d >>> 33;
+        d *= 0xff51afd7ed558ccdL;
+        d ^= d >>> 33;
+        return d;
+    }
+}
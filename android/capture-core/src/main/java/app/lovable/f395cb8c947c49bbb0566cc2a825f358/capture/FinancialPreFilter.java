@@ -0,0 +1,98 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cheap first gate for posted notifications, run on the listener's callback thread before
+ * anything is copied or parsed.
+ *
+ * <p>Packages on the deny table (chat, email, the system UI) are rejected outright; packages with a
+ * {@link BankProfile} are always let through. Everything else passes only if the raw extras
+ * mention one of the keywords {@link TransactionParser} treats as financial, found in a single
+ * automaton pass per field. The keyword set is a superset of the parser's, so nothing the parser
+ * would accept is filtered out.
+ */
+public final class FinancialPreFilter {
+    private static final String[] DENY_PACKAGES = {
+        "android",
+        "com.android.systemui",
+        "com.whatsapp",
+        "com.whatsapp.w4b",
+        "org.telegram.messenger",
+        "com.facebook.orca",
+        "com.instagram.android",
+        "com.discord",
+        "com.google.android.gm",
+        "com.google.android.apps.messaging",
+        "com.google.android.youtube",
+        "com.spotify.music"
+    };
+
+    private static final String[] KEYWORDS = {
+        "enviado", "débito", "recebido", "crédito", "pix", "transferência", "pagamento",
+        "recebimento", "saque", "depósito", "r$"
+    };
+    private static final String[] WHOLE_WORD_KEYWORDS = { "ted", "doc" };
+
+    private static final KeywordAutomaton AUTOMATON;
+    static {
+        KeywordAutomaton.Builder builder = new KeywordAutomaton.Builder();
+        for (String k : KEYWORDS) builder.add(k, false);
+        for (String k : WHOLE_WORD_KEYWORDS) builder.add(k, true);
+        AUTOMATON = builder.build();
+    }
+
+    private final String ownPackage;
+    private final ProfileRegistry profiles;
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /** {@code ownPackage} is this app's package, whose own notifications are never captured. */
+    public FinancialPreFilter(String ownPackage, ProfileRegistry profiles) {
+        this.ownPackage = ownPackage;
+        this.profiles = profiles;
+    }
+
+    public boolean accept(String pkg, CharSequence title, CharSequence text, CharSequence bigText,
+                          CharSequence[] lines) {
+        boolean pass = decide(pkg, title, text, bigText, lines);
+        (pass ? accepted : rejected).incrementAndGet();
+        return pass;
+    }
+
+    private boolean decide(String pkg, CharSequence title, CharSequence text, CharSequence bigText,
+                           CharSequence[] lines) {
+        if (pkg == null || pkg.equals(ownPackage) || matches(DENY_PACKAGES, pkg)) return false;
+        if (profiles.current().forPackage(pkg) != null) return true;
+        if (mentionsKeyword(bigText) || mentionsKeyword(text) || mentionsKeyword(title)) return true;
+        if (lines != null) {
+            for (CharSequence line : lines) {
+                if (mentionsKeyword(line)) return true;
+            }
+        }
+        return false;
+    }
+
+    public static boolean mentionsKeyword(CharSequence text) {
+        return AUTOMATON.scan(text) != 0L;
+    }
+
+    /** Exact match or a sub-package ("com.google.android.gm" covers "com.google.android.gm.lite"). */
+    private static boolean matches(String[] table, String pkg) {
+        for (String entry : table) {
+            if (pkg.equals(entry)) return true;
+            if (pkg.length() > entry.length() && pkg.startsWith(entry) && pkg.charAt(entry.length()) == '.') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public long acceptedCount() {
+        return accepted.get();
+    }
+
+    public long rejectedCount() {
+        return rejected.get();
+    }
+}
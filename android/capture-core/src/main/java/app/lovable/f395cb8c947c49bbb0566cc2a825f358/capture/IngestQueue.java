@@ -0,0 +1,121 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The one queue every capture channel feeds. Producers on any thread hand captures to an
+ * {@link MpscRing}; a single consumer thread takes them in order and runs the handler, so
+ * persistence is never entered concurrently and no update can be lost to a racing writer.
+ *
+ * <p>The consumer parks when the ring is empty and producers unpark it. When the ring is full the
+ * item is dropped and counted, as on the notification lanes, so a producer never waits; that
+ * includes the accessibility service's main thread. An item the handler throws on is counted and
+ * handed to the {@link FailureListener}.
+ */
+public final class IngestQueue<E> {
+
+    public interface Handler<E> {
+        void handle(E item);
+    }
+
+    /** Told about each item the handler threw on, on the consumer thread. */
+    public interface FailureListener<E> {
+        void onFailure(E item, RuntimeException e);
+    }
+
+    private final MpscRing<E> ring;
+    private final Handler<E> handler;
+    private final FailureListener<E> failures;
+    private final Thread consumer;
+    private volatile boolean running = true;
+    private volatile boolean consumerParked;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile long processed;
+
+    public IngestQueue(String name, int capacity, Handler<E> handler, FailureListener<E> failures) {
+        this.ring = new MpscRing<>(capacity);
+        this.handler = handler;
+        this.failures = failures;
+        this.consumer = new Thread(this::consume, name);
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    /**
+     * Queues {@code item} for the consumer; returns false if the ring was full and the item was
+     * dropped. Safe from any thread and never waits.
+     */
+    public boolean submit(E item) {
+        if (!running) throw new IllegalStateException("Ingest queue is shut down");
+        if (!ring.offer(item)) {
+            dropped.incrementAndGet();
+            wakeConsumer();
+            return false;
+        }
+        submitted.incrementAndGet();
+        wakeConsumer();
+        return true;
+    }
+
+    private void wakeConsumer() {
+        if (consumerParked) LockSupport.unpark(consumer);
+    }
+
+    private void consume() {
+        while (true) {
+            E item = ring.poll();
+            if (item != null) {
+                try {
+                    handler.handle(item);
+                } catch (RuntimeException e) {
+                    failed.incrementAndGet();
+                    reportFailure(item, e);
+                }
+                processed++;
+                continue;
+            }
+            if (!running) return;
+            consumerParked = true;
+            // Re-check after announcing the park so a producer's unpark cannot be missed
+            if (ring.isEmpty() && running) LockSupport.park(this);
+            consumerParked = false;
+        }
+    }
+
+    private void reportFailure(E item, RuntimeException e) {
+        try {
+            failures.onFailure(item, e);
+        } catch (RuntimeException ignored) {
+            // A broken listener must not stop the consumer
+        }
+    }
+
+    /** Stops accepting items, processes everything already queued, and waits for the consumer. */
+    public void shutdown() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(consumer);
+        consumer.join();
+    }
+
+    public long submittedCount() {
+        return submitted.get();
+    }
+
+    public long processedCount() {
+        return processed;
+    }
+
+    /** Items dropped because the ring was full. */
+    public long droppedCount() {
+        return dropped.get();
+    }
+
+    /** Items the handler threw on. */
+    public long failedCount() {
+        return failed.get();
+    }
+}
@@ -0,0 +1,151 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Aho–Corasick automaton over accent-folded text, compiled into a dense transition table so
+ * matching is one table lookup per input char with no allocation.
+ *
+ * <p>The alphabet is a-z, 0-9 and '$'; any other char sends the automaton back to the root, so
+ * keywords are single tokens or "r$". Keywords flagged whole-word only match when not surrounded
+ * by letters or digits. At most 64 keywords.
+ */
+public final class KeywordAutomaton {
+    private static final int ALPHABET = 37;
+
+    private final int[] next;      // state * ALPHABET + symbol -> state
+    private final long[] outputs;  // keyword ids ending at each state, including suffix states
+    private final int[] lengths;
+    private final long wholeWordMask;
+
+    private KeywordAutomaton(int[] next, long[] outputs, int[] lengths, long wholeWordMask) {
+        this.next = next;
+        this.outputs = outputs;
+        this.lengths = lengths;
+        this.wholeWordMask = wholeWordMask;
+    }
+
+    public static final class Builder {
+        private final List<String> keywords = new ArrayList<>();
+        private long wholeWordMask;
+
+        /** Adds a keyword and returns its id, the bit it sets in {@link #scan} results. */
+        public int add(String keyword, boolean wholeWord) {
+            if (keywords.size() == 64) throw new IllegalStateException("At most 64 keywords");
+            StringBuilder folded = new StringBuilder(keyword.length());
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = AccentFolding.fold(keyword.charAt(i));
+                if (symbol(c) < 0) throw new IllegalArgumentException("Unsupported char in keyword: " + keyword);
+                folded.append(c);
+            }
+            int id = keywords.size();
+            keywords.add(folded.toString());
+            if (wholeWord) wholeWordMask |= 1L << id;
+            return id;
+        }
+
+        public KeywordAutomaton build() {
+            // Trie
+            List<int[]> gotoRows = new ArrayList<>();
+            List<Long> out = new ArrayList<>();
+            gotoRows.add(newRow());
+            out.add(0L);
+            int[] lengths = new int[keywords.size()];
+            for (int id = 0; id < keywords.size(); id++) {
+                String k = keywords.get(id);
+                lengths[id] = k.length();
+                int state = 0;
+                for (int i = 0; i < k.length(); i++) {
+                    int sym = symbol(k.charAt(i));
+                    if (gotoRows.get(state)[sym] < 0) {
+                        gotoRows.get(state)[sym] = gotoRows.size();
+                        gotoRows.add(newRow());
+                        out.add(0L);
+                    }
+                    state = gotoRows.get(state)[sym];
+                }
+                out.set(state, out.get(state) | (1L << id));
+            }
+
+            // Breadth-first failure links, folded straight into a full transition table
+            int states = gotoRows.size();
+            int[] next = new int[states * ALPHABET];
+            long[] outputs = new long[states];
+            int[] fail = new int[states];
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            for (int sym = 0; sym < ALPHABET; sym++) {
+                int s = gotoRows.get(0)[sym];
+                if (s < 0) {
+                    next[sym] = 0;
+                } else {
+                    next[sym] = s;
+                    fail[s] = 0;
+                    queue.add(s);
+                }
+            }
+            for (int s = 0; s < states; s++) outputs[s] = out.get(s);
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                outputs[state] |= outputs[fail[state]];
+                for (int sym = 0; sym < ALPHABET; sym++) {
+                    int child = gotoRows.get(state)[sym];
+                    if (child < 0) {
+                        next[state * ALPHABET + sym] = next[fail[state] * ALPHABET + sym];
+                    } else {
+                        next[state * ALPHABET + sym] = child;
+                        fail[child] = next[fail[state] * ALPHABET + sym];
+                        queue.add(child);
+                    }
+                }
+            }
+            return new KeywordAutomaton(next, outputs, lengths, wholeWordMask);
+        }
+
+        private static int[] newRow() {
+            int[] row = new int[ALPHABET];
+            Arrays.fill(row, -1);
+            return row;
+        }
+    }
+
+    /** Returns the ids of every keyword found in {@code text}, as a bitmask. */
+    public long scan(CharSequence text) {
+        if (text == null) return 0L;
+        long found = 0L;
+        int state = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            int sym = symbol(AccentFolding.fold(text.charAt(i)));
+            if (sym < 0) {
+                state = 0;
+                continue;
+            }
+            state = next[state * ALPHABET + sym];
+            long hits = outputs[state];
+            if (hits == 0L) continue;
+            long wordHits = hits & wholeWordMask;
+            found |= hits & ~wordHits;
+            while (wordHits != 0L) {
+                int id = Long.numberOfTrailingZeros(wordHits);
+                wordHits &= wordHits - 1;
+                if (isBoundary(text, i - lengths[id]) && isBoundary(text, i + 1)) found |= 1L << id;
+            }
+        }
+        return found;
+    }
+
+    private static boolean isBoundary(CharSequence text, int index) {
+        if (index < 0 || index >= text.length()) return true;
+        return !Character.isLetterOrDigit(text.charAt(index));
+    }
+
+    private static int symbol(char folded) {
+        if (folded >= 'a' && folded <= 'z') return folded - 'a';
+        if (folded >= '0' && folded <= '9') return 26 + folded - '0';
+        if (folded == '$') return 36;
+        return -1;
+    }
+}
@@ -0,0 +1,76 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free ring buffer for many producers and a single consumer.
+ *
+ * <p>Each slot carries a sequence number. A producer claims the next position with one CAS on the
+ * tail, writes its element, then publishes it by advancing the slot's sequence; the consumer only
+ * takes a slot once it is published, so a producer stalled between claim and publish delays the
+ * consumer but never exposes a half-written slot. {@link #poll} and {@link #isEmpty} must only be
+ * called from the consumer thread.
+ */
+final class MpscRing<E> {
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private long head; // consumer-owned
+
+    MpscRing(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.elements = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) sequences.set(i, i);
+    }
+
+    /** Returns false when the ring is full. */
+    boolean offer(E element) {
+        if (element == null) throw new NullPointerException();
+        long position;
+        int index;
+        while (true) {
+            position = tail.get();
+            index = (int) (position & mask);
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) break;
+            } else if (diff < 0) {
+                // The consumer has not freed this slot from the previous lap yet
+                return false;
+            }
+            // Otherwise another producer claimed this position first; retry
+        }
+        elements.lazySet(index, element);
+        sequences.set(index, position + 1);
+        return true;
+    }
+
+    /** Returns the oldest published element, or null when there is none. Consumer only. */
+    E poll() {
+        int index = (int) (head & mask);
+        if (sequences.get(index) != head + 1) return null;
+        E element = elements.get(index);
+        elements.lazySet(index, null);
+        sequences.set(index, head + capacity);
+        head++;
+        return element;
+    }
+
+    /** Consumer only. */
+    boolean isEmpty() {
+        return sequences.get((int) (head & mask)) != head + 1;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,182 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+/**
+ * The text of one notification after a single normalization pass, held in buffers that each
+ * thread reuses from one notification to the next.
+ *
+ * <p>The pass reads big text, text and lines (the content), then the title. Whitespace runs,
+ * including NBSP and field boundaries, become one space, and leading and trailing whitespace is
+ * dropped. Every char is written twice, as is to the display buffer and through
+ * {@link AccentFolding} to the folded one, so an offset in one is the same offset in the other.
+ * Keyword matchers read the folded views; amounts, names and dates read the display views.
+ *
+ * <p>Views are backed by the buffers, not copied: they are valid until the next {@link #of} on
+ * the same thread, and anything kept must be copied out with {@code toString()}.
+ */
+public final class NormalizedText {
+    private static final int INITIAL_CAPACITY = 512;
+
+    private static final ThreadLocal<NormalizedText> PER_THREAD = new ThreadLocal<NormalizedText>() {
+        @Override
+        protected NormalizedText initialValue() {
+            return new NormalizedText();
+        }
+    };
+
+    private char[] display = new char[INITIAL_CAPACITY];
+    private char[] folded = new char[INITIAL_CAPACITY];
+    private int length;
+    private int contentEnd;
+    private int titleStart;
+    private boolean pendingSpace;
+
+    private final Span content = new Span();
+    private final Span title = new Span();
+    private final Span all = new Span();
+    private final Span foldedContent = new Span();
+    private final Span foldedTitle = new Span();
+    private final Span foldedAll = new Span();
+
+    private NormalizedText() {}
+
+    /** This thread's instance; the previous notification's views are overwritten by {@link #of}. */
+    public static NormalizedText forThread() {
+        return PER_THREAD.get();
+    }
+
+    public NormalizedText of(CharSequence title, CharSequence text, CharSequence bigText, CharSequence[] lines) {
+        length = 0;
+        pendingSpace = false;
+        append(bigText);
+        append(text);
+        if (lines != null) {
+            for (CharSequence line : lines) append(line);
+        }
+        contentEnd = length;
+        // The space before the title is only written if the title has text of its own
+        pendingSpace = contentEnd > 0;
+        append(title);
+        titleStart = length > contentEnd && contentEnd > 0 ? contentEnd + 1 : contentEnd;
+
+        content.set(display, 0, contentEnd);
+        foldedContent.set(folded, 0, contentEnd);
+        this.title.set(display, titleStart, length);
+        foldedTitle.set(folded, titleStart, length);
+        all.set(display, 0, length);
+        foldedAll.set(folded, 0, length);
+        return this;
+    }
+
+    private void append(CharSequence s) {
+        if (s == null) return;
+        int n = s.length();
+        ensureCapacity(length + n + 1);
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (isSpace(c)) {
+                pendingSpace = length > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                display[length] = ' ';
+                folded[length++] = ' ';
+                pendingSpace = false;
+            }
+            display[length] = c;
+            folded[length++] = AccentFolding.fold(c);
+        }
+        // A field boundary separates words like any other whitespace
+        pendingSpace = length > 0;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= display.length) return;
+        int capacity = Math.max(needed, display.length * 2);
+        char[] d = new char[capacity];
+        char[] f = new char[capacity];
+        System.arraycopy(display, 0, d, 0, length);
+        System.arraycopy(folded, 0, f, 0, length);
+        display = d;
+        folded = f;
+    }
+
+    private static boolean isSpace(char c) {
+        return Character.isWhitespace(c) || c == '\u00a0' || c == '\u2007' || c == '\u202f';
+    }
+
+    /** Big text, text and lines, space-separated. */
+    public CharSequence content() {
+        return content;
+    }
+
+    public CharSequence title() {
+        return title;
+    }
+
+    /** Content, a space and the title. */
+    public CharSequence all() {
+        return all;
+    }
+
+    public CharSequence foldedContent() {
+        return foldedContent;
+    }
+
+    public CharSequence foldedTitle() {
+        return foldedTitle;
+    }
+
+    public CharSequence foldedAll() {
+        return foldedAll;
+    }
+
+    /** Same value as {@code content().toString().hashCode()}, without the copy. */
+    public int contentHash() {
+        int h = 0;
+        for (int i = 0; i < contentEnd; i++) h = 31 * h + display[i];
+        return h;
+    }
+
+    /** A window onto one of the buffers, repointed by each {@link #of}. */
+    private static final class Span implements CharSequence {
+        private char[] buffer;
+        private int start;
+        private int end;
+
+        Span() {}
+
+        private Span(char[] buffer, int start, int end) {
+            set(buffer, start, end);
+        }
+
+        void set(char[] buffer, int start, int end) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= end - start) throw new IndexOutOfBoundsException("index " + index);
+            return buffer[start + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            if (from < 0 || to > end - start || from > to) {
+                throw new IndexOutOfBoundsException("[" + from + ", " + to + ")");
+            }
+            return new Span(buffer, start + from, start + to);
+        }
+
+        @Override
+        public String toString() {
+            return new String(buffer, start, end - start);
+        }
+    }
+}
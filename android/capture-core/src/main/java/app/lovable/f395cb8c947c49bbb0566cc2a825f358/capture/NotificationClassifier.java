@@ -0,0 +1,107 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Turns the text of a posted notification into a {@link CapturedTransaction}, or rejects it.
+ * Everything between the listener's snapshot and the ingest queue lives here, free of Android
+ * types, so the same path can be measured and tested on a plain JVM. Each notification is
+ * normalized once, into this thread's {@link NormalizedText}, and every rule reads that.
+ */
+public final class NotificationClassifier {
+    private final ProfileRegistry profiles;
+
+    public NotificationClassifier(ProfileRegistry profiles) {
+        this.profiles = profiles;
+    }
+
+    /**
+     * Returns the transaction described by the notification, or null when it is not one. Only
+     * {@code pkg}'s profile runs; apps without one get the generic rules. {@code now} stamps the
+     * capture when the text carries no date of its own.
+     */
+    public CapturedTransaction classify(String pkg, int id, long postTime, String title, String text,
+                                        String bigText, String[] lines, long now) {
+        NormalizedText normalized = NormalizedText.forThread().of(title, text, bigText, lines);
+        TransactionParser.Result parsed = profiles.current().profileFor(pkg).parse(normalized, postTime);
+        if (!isTransaction(parsed)) return null;
+
+        CapturedTransaction tx = toTransaction(pkg, parsed, title, now);
+        tx.id = now + "-" + Math.abs(normalized.contentHash());
+        // Stable key for dedupe
+        tx.eventKey = pkg + ":" + id + ":" + postTime;
+        return tx;
+    }
+
+    /**
+     * Batch mode for notifications that may stand for several payments. An inbox- or messaging-style
+     * notification ("3 novos Pix recebidos") carries one payment per line, so each line is parsed
+     * against the title as its own candidate; joined, the lines would yield one transaction with
+     * the first amount. The lines are taken as payments when at least two of them parse, or when
+     * the notification is its group's summary; otherwise the notification is classified whole, as
+     * by {@link #classify}. A summary whose lines hold no payment yields nothing: its children are
+     * posted, and parsed, on their own.
+     *
+     * <p>Line captures are marked {@link CapturedTransaction#summaryLine} so they merge with the
+     * children they repeat, and keyed by their normalized text rather than the post time, so a
+     * line already captured is a duplicate when the app reposts the notification with one more.
+     */
+    public List<CapturedTransaction> classifyBatch(String pkg, int id, long postTime, String title, String text,
+                                                   String bigText, String[] lines, boolean groupSummary, long now) {
+        if (lines != null && (lines.length >= 2 || groupSummary)) {
+            List<CapturedTransaction> perLine = classifyLines(pkg, id, postTime, title, lines, now);
+            if (perLine.size() >= 2 || groupSummary) return perLine;
+        } else if (groupSummary) {
+            return Collections.emptyList();
+        }
+        CapturedTransaction tx = classify(pkg, id, postTime, title, text, bigText, lines, now);
+        return tx != null ? Collections.singletonList(tx) : Collections.<CapturedTransaction>emptyList();
+    }
+
+    private List<CapturedTransaction> classifyLines(String pkg, int id, long postTime, String title,
+                                                    String[] lines, long now) {
+        BankProfile profile = profiles.current().profileFor(pkg);
+        NormalizedText normalized = NormalizedText.forThread();
+        List<CapturedTransaction> found = new ArrayList<>(lines.length);
+        int[] hashes = new int[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            normalized.of(title, lines[i], null, null);
+            if (normalized.content().length() == 0) continue;
+            TransactionParser.Result parsed = profile.parse(normalized, postTime);
+            if (!isTransaction(parsed)) continue;
+
+            int hash = normalized.contentHash();
+            // Two equal lines are two payments; number the repeats so their keys differ
+            int repeat = 0;
+            for (int j = 0; j < found.size(); j++) {
+                if (hashes[j] == hash) repeat++;
+            }
+            hashes[found.size()] = hash;
+
+            CapturedTransaction tx = toTransaction(pkg, parsed, title, now);
+            tx.id = now + "-" + Math.abs(hash) + "-" + i;
+            tx.eventKey = pkg + ":" + id + ":line:" + hash + (repeat > 0 ? "#" + repeat : "");
+            tx.summaryLine = true;
+            found.add(tx);
+        }
+        return found;
+    }
+
+    private static boolean isTransaction(TransactionParser.Result parsed) {
+        return parsed.financial && parsed.amountCents > 0 && parsed.direction != null;
+    }
+
+    private static CapturedTransaction toTransaction(String pkg, TransactionParser.Result parsed, String title, long now) {
+        CapturedTransaction tx = new CapturedTransaction();
+        tx.type = parsed.direction;
+        tx.amountCents = parsed.amountCents;
+        tx.dateMs = parsed.dateMs != 0 ? parsed.dateMs : now;
+        tx.contact = parsed.contact;
+        tx.description = title != null && !title.isEmpty() ? title : "PIX";
+        tx.source = pkg;
+        tx.channel = CapturedTransaction.CHANNEL_NOTIFICATION;
+        return tx;
+    }
+}
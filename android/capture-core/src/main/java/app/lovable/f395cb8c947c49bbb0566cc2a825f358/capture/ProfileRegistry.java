@@ -0,0 +1,19 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+/**
+ * Holds the current {@link BankProfiles}. A reload compiles a complete new set and swaps it in
+ * with one volatile write, so readers on any thread see either the old rules or the new ones,
+ * never a mix.
+ */
+public final class ProfileRegistry {
+    private volatile BankProfiles current = BankProfiles.EMPTY;
+
+    public BankProfiles current() {
+        return current;
+    }
+
+    public void replace(BankProfiles profiles) {
+        if (profiles == null) throw new NullPointerException();
+        current = profiles;
+    }
+}
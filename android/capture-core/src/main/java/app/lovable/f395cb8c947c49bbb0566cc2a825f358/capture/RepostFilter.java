@@ -0,0 +1,79 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers a 64-bit digest of the text last seen for each live notification, keyed by
+ * (package, id, tag), so an update or re-alert that changes nothing is dropped before any parsing.
+ *
+ * <p>Android reposts a notification under the same key whenever the app updates it, and bank apps
+ * refresh ongoing notifications often. A key is forgotten when its notification is removed, so a
+ * new notification that happens to read the same is still parsed. The least recently seen keys
+ * are evicted past the capacity. Safe to call from any thread.
+ */
+public final class RepostFilter {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Map<String, Long> digests;
+    private final AtomicLong skipped = new AtomicLong();
+
+    public RepostFilter(final int capacity) {
+        digests = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /** Records {@code digest} for the key and returns true, counting a skip, when it is the one already recorded. */
+    public boolean isRepost(String pkg, int id, String tag, long digest) {
+        Long previous;
+        synchronized (digests) {
+            previous = digests.put(key(pkg, id, tag), digest);
+        }
+        if (previous == null || previous != digest) return false;
+        skipped.incrementAndGet();
+        return true;
+    }
+
+    public void forget(String pkg, int id, String tag) {
+        synchronized (digests) {
+            digests.remove(key(pkg, id, tag));
+        }
+    }
+
+    public long skippedCount() {
+        return skipped.get();
+    }
+
+    /** FNV-1a over the fields in order, with a separator after each so text cannot shift between them. */
+    public static long digest(String title, String text, String bigText, String[] lines) {
+        long h = FNV_OFFSET;
+        h = mix(h, title);
+        h = mix(h, text);
+        h = mix(h, bigText);
+        if (lines != null) {
+            for (String line : lines) h = mix(h, line);
+        }
+        return h;
+    }
+
+    private static long mix(long h, String s) {
+        if (s != null) {
+            for (int i = 0; i < s.length(); i++) {
+                h ^= s.charAt(i);
+                h *= FNV_PRIME;
+            }
+        }
+        h ^= 0x1f; // field separator
+        return h * FNV_PRIME;
+    }
+
+    private static String key(String pkg, int id, String tag) {
+        return tag == null ? pkg + ':' + id : pkg + ':' + id + ':' + tag;
+    }
+}
@@ -0,0 +1,100 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Finds captures of the same payment made by different channels (a bank notification and the
+ * accessibility service reading the confirmation screen).
+ *
+ * <p>Captures are fingerprinted by amount in centavos, direction and time bucket; within a
+ * fingerprint, counterparties must match after normalization, or one side must be unknown or a
+ * truncation of the other. The buckets either side are searched too, so captures straddling a
+ * boundary still meet in either arrival order: a bank profile's printed time is truncated to the
+ * minute and can fall a bucket before the screen capture's. A fingerprint is evicted two buckets
+ * after the last capture in it arrived, whatever the captures' dates: a late capture with an old
+ * date still meets its counterpart, and one dated in the future cannot push the others out. Two
+ * captures from the same channel are never merged: that is two real payments of the same amount,
+ * unless one of them is a line of a summary notification, which repeats payments the app also
+ * posts one by one. Not thread-safe; callers synchronize.
+ */
+public final class TransactionCorrelator {
+    static final long BUCKET_MS = 2 * 60 * 1000;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_LETTERS = Pattern.compile("[^a-z0-9]+");
+
+    private final Map<String, Bucket> recent = new HashMap<>();
+    private long evictedBefore = Long.MIN_VALUE;
+
+    private static final class Bucket {
+        final List<CapturedTransaction> captures = new ArrayList<>(2);
+        // Arrival bucket of the latest capture added
+        long arrived;
+    }
+
+    /**
+     * Returns the canonical capture {@code tx} duplicates, or null after remembering {@code tx} as
+     * a new canonical capture. {@code nowMs} is the arrival time.
+     */
+    public CapturedTransaction correlate(CapturedTransaction tx, long nowMs) {
+        long cents = tx.amountCents;
+        long bucket = Math.floorDiv(tx.dateMs, BUCKET_MS);
+        long arrived = Math.floorDiv(nowMs, BUCKET_MS);
+        evictArrivedBefore(arrived - 2);
+        String contact = normalizeContact(tx.contact);
+
+        for (long b = bucket - 1; b <= bucket + 1; b++) {
+            Bucket candidates = recent.get(key(cents, tx.type, b));
+            if (candidates == null) continue;
+            for (CapturedTransaction canonical : candidates.captures) {
+                if (canonical.hasChannel(tx.channel) && canonical.summaryLine == tx.summaryLine) continue;
+                if (!sameCounterparty(contact, normalizeContact(canonical.contact))) continue;
+                return canonical;
+            }
+        }
+
+        String key = key(cents, tx.type, bucket);
+        Bucket entry = recent.get(key);
+        if (entry == null) {
+            entry = new Bucket();
+            recent.put(key, entry);
+        }
+        entry.captures.add(tx);
+        entry.arrived = Math.max(entry.arrived, arrived);
+        return null;
+    }
+
+    // Scans once per bucket of arrival time
+    private void evictArrivedBefore(long bucket) {
+        if (bucket <= evictedBefore) return;
+        evictedBefore = bucket;
+        Iterator<Bucket> it = recent.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().arrived < bucket) it.remove();
+        }
+    }
+
+    private static String key(long cents, String type, long bucket) {
+        return cents + "|" + type + "|" + bucket;
+    }
+
+    private static boolean sameCounterparty(String a, String b) {
+        if (a.isEmpty() || b.isEmpty()) return true;
+        return a.startsWith(b) || b.startsWith(a);
+    }
+
+    /** Lowercase, accent-free, single-spaced name; empty when unknown. */
+    static String normalizeContact(String contact) {
+        if (contact == null || contact.equals(TransactionParser.UNKNOWN_CONTACT)) return "";
+        String s = Normalizer.normalize(contact, Normalizer.Form.NFD);
+        s = DIACRITICS.matcher(s).replaceAll("").toLowerCase(Locale.ROOT);
+        return NON_LETTERS.matcher(s).replaceAll(" ").trim();
+    }
+}
@@ -0,0 +1,136 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+import java.util.regex.Pattern;
+
+/**
+ * Transaction parsing engine shared by the notification listener and the accessibility service.
+ * All rules are compiled once; each rule set walks the input a single time.
+ */
+public final class TransactionParser {
+    public static final String SENT = "sent";
+    public static final String RECEIVED = "received";
+    public static final String UNKNOWN_CONTACT = "Desconhecido";
+
+    // Direction and financial terms, found in one pass over folded text
+    private static final KeywordAutomaton KEYWORDS;
+    private static final long SENT_MASK;
+    private static final long RECEIVED_MASK;
+    private static final long PIX_MASK;
+    private static final long FINANCIAL_MASK;
+    private static final long TRANSFER_MASK;
+    static {
+        KeywordAutomaton.Builder builder = new KeywordAutomaton.Builder();
+        long sent = bit(builder.add("enviado", false));
+        long debit = bit(builder.add("debito", false));
+        long received = bit(builder.add("recebido", false));
+        long credit = bit(builder.add("credito", false));
+        long pix = bit(builder.add("pix", false));
+        long transfer = 0L;
+        for (String k : new String[] { "transferencia", "pagamento", "recebimento" }) {
+            transfer |= bit(builder.add(k, false));
+        }
+        long other = transfer;
+        for (String k : new String[] { "saque", "deposito" }) {
+            other |= bit(builder.add(k, false));
+        }
+        other |= bit(builder.add("ted", true)) | bit(builder.add("doc", true));
+        KEYWORDS = builder.build();
+        SENT_MASK = sent | debit;
+        RECEIVED_MASK = received | credit;
+        PIX_MASK = pix;
+        // Débito and crédito are financial terms on their own; enviado and recebido are not
+        FINANCIAL_MASK = debit | credit | pix | other;
+        // The words the accessibility service has always looked for before reading a screen
+        TRANSFER_MASK = sent | received | pix | transfer;
+    }
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final int MIN_CONTACT_LENGTH = 2;
+    private static final int MAX_CONTACT_LENGTH = 80;
+
+    private TransactionParser() {}
+
+    public static final class Result {
+        /** True when the text mentions PIX, transfers, payments or other financial terms. */
+        public boolean financial;
+        /**
+         * True when the text says pix, transferência, enviado, recebido, pagamento or recebimento:
+         * it names a transfer or payment, not just a card or statement entry.
+         */
+        public boolean transfer;
+        public boolean mentionsPix;
+        /** {@link #SENT}, {@link #RECEIVED} or null when no direction keyword was found. */
+        public String direction;
+        public long amountCents;
+        public String contact = UNKNOWN_CONTACT;
+        /** Epoch ms of a date printed in the text, or 0 when the rules found none. */
+        public long dateMs;
+
+        public double amount() {
+            return amountCents / 100.0;
+        }
+    }
+
+    /**
+     * Parses a notification body or screen dump. The title, when present, contributes to keyword,
+     * direction and amount detection but never to the counterparty name.
+     */
+    public static Result parse(String content, String title) {
+        return parse(NormalizedText.forThread().of(title, content, null, null));
+    }
+
+    /** Same as {@link #parse(String, String)}, reading the views of already normalized text. */
+    public static Result parse(NormalizedText text) {
+        Result result = new Result();
+        scanKeywords(text.foldedAll(), result);
+        result.amountCents = AmountScanner.scanCents(text.all());
+        result.contact = extractContact(text.content());
+        return result;
+    }
+
+    /**
+     * Acceptance rule for a bank app's screen: a transfer word, a direction and an amount. No
+     * financial term is required, as the package is already known to be a bank's; this is the
+     * check the accessibility service made before it shared this parser.
+     */
+    public static boolean isScreenTransaction(Result result) {
+        return result.transfer && result.direction != null && result.amountCents > 0;
+    }
+
+    private static void scanKeywords(CharSequence folded, Result result) {
+        long found = KEYWORDS.scan(folded);
+        result.financial = (found & FINANCIAL_MASK) != 0;
+        result.transfer = (found & TRANSFER_MASK) != 0;
+        result.mentionsPix = (found & PIX_MASK) != 0;
+        // Sent keywords take precedence, matching the original services
+        result.direction = (found & SENT_MASK) != 0 ? SENT : (found & RECEIVED_MASK) != 0 ? RECEIVED : null;
+    }
+
+    private static long bit(int id) {
+        return 1L << id;
+    }
+
+    /** Returns the best amount found in the text, or 0 when there is none; see {@link AmountScanner}. */
+    public static double extractAmount(String text) {
+        return AmountScanner.scanCents(text) / 100.0;
+    }
+
+    /**
+     * Returns the counterparty named after "para", "recebido de" or "de" (in that order of
+     * preference), falling back to an all-caps full name. Runs in linear time over at most
+     * {@link ContactExtractor#MAX_INPUT_CHARS} chars of the text.
+     */
+    public static String extractContact(CharSequence text) {
+        if (text == null || text.length() == 0) return UNKNOWN_CONTACT;
+        String name = ContactExtractor.extract(text);
+        return name != null ? name : UNKNOWN_CONTACT;
+    }
+
+    static String cleanName(String raw) {
+        String name = WHITESPACE.matcher(raw.replace("…", "").replace("...", "")).replaceAll(" ").trim();
+        while (name.endsWith(".") || name.endsWith(",")) name = name.substring(0, name.length() - 1).trim();
+        if (name.length() < MIN_CONTACT_LENGTH || name.length() > MAX_CONTACT_LENGTH) return null;
+        return name;
+    }
+}
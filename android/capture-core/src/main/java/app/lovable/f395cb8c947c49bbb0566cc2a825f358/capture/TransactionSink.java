@@ -0,0 +1,17 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+import java.util.List;
+
+/**
+ * Durable history the pipeline writes every accepted capture to, next to the delivery journal.
+ */
+public interface TransactionSink {
+    /** Records a new canonical capture; a capture whose id or event key is already stored is ignored. */
+    void insert(CapturedTransaction tx);
+
+    /** Records several new canonical captures in one write, with the same rule as {@link #insert}. */
+    void insertAll(List<CapturedTransaction> txs);
+
+    /** Adds the provenance of a merged capture to the stored canonical one. */
+    void addSource(String canonicalId, String provenance);
+}
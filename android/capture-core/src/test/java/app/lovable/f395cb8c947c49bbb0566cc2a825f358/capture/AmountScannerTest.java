@@ -0,0 +1,67 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class AmountScannerTest {
+
+    @Test
+    public void brazilianAmountsAreExactCentavos() {
+        assertEquals(123_456, AmountScanner.scanCents("R$ 1.234,56"));
+        assertEquals(123_450, AmountScanner.scanCents("R$1234,5"));
+        assertEquals(1, AmountScanner.scanCents("R$ 0,01"));
+        assertEquals(1_000_000_00L, AmountScanner.scanCents("Pix de R$ 1.000.000,00 recebido"));
+        assertEquals(1_999, AmountScanner.scanCents(new StringBuilder("r$ 19,99")));
+        // Whitespace of any kind between the symbol and the number
+        assertEquals(2_550, AmountScanner.scanCents("R$\u000b25,50"));
+    }
+
+    @Test
+    public void incompleteAmountsAreNotRead() {
+        assertEquals(0, AmountScanner.scanCents("R$ 50"));
+        assertEquals(0, AmountScanner.scanCents("R$ 1.234"));
+        assertEquals(0, AmountScanner.scanCents("R$ 10,"));
+        assertEquals(0, AmountScanner.scanCents("R$ 0,00"));
+        assertEquals(0, AmountScanner.scanCents("R$ 1,234"));
+        assertEquals(0, AmountScanner.scanCents(""));
+        assertEquals(0, AmountScanner.scanCents(null));
+    }
+
+    @Test
+    public void signIsLeftToTheDirectionKeywords() {
+        assertEquals(5_000, AmountScanner.scanCents("-R$ 50,00"));
+        assertEquals(5_000, AmountScanner.scanCents("R$ -50,00"));
+        assertEquals(5_000, AmountScanner.scanCents("Débito: - R$ 50,00"));
+    }
+
+    @Test
+    public void valuesNearTheDigitLimitDoNotOverflow() {
+        // Fifteen integer digits is the most the scanner reads
+        assertEquals(99_999_999_999_999_999L, AmountScanner.scanCents("R$ 999.999.999.999.999,99"));
+        assertEquals(99_999_999_999_999_999L, AmountScanner.scanCents("R$ 999999999999999,99"));
+        assertEquals(0, AmountScanner.scanCents("R$ 9.999.999.999.999.999,99"));
+        assertEquals(0, AmountScanner.scanCents("R$ 9999999999999999,99"));
+        assertEquals(0, AmountScanner.scanCents("R$ 99999999999999999999999999999999,99"));
+    }
+
+    @Test
+    public void digitsThatAreNotAmountsAreIgnored() {
+        assertEquals(0, AmountScanner.scanCents("Pedido 12345 entregue em 10/05"));
+        assertEquals(0, AmountScanner.scanCents("CPF 123.456.789-00"));
+        assertEquals(0, AmountScanner.scanCents("Agência 1234, conta 56789-0"));
+        assertEquals(0, AmountScanner.scanCents("Código 2024.10"));
+        // The CPF's digits do not run into the amount that follows
+        assertEquals(1_050, AmountScanner.scanCents("CPF 123.456.789-00 R$ 10,50"));
+    }
+
+    @Test
+    public void prefixedBrazilianAmountWins() {
+        assertEquals(2_550, AmountScanner.scanCents("Saldo 1.000,00. Pix de R$ 25,50"));
+        assertEquals(1_000_00, AmountScanner.scanCents("Saldo 1.000,00 disponível"));
+        // Bare international amounts are ignored, prefixed ones rank last
+        assertEquals(0, AmountScanner.scanCents("Total 1,234.56"));
+        assertEquals(123_456, AmountScanner.scanCents("Total R$ 1,234.56"));
+        assertEquals(990, AmountScanner.scanCents("R$ 1,234.56 ou R$ 9,9"));
+    }
+}
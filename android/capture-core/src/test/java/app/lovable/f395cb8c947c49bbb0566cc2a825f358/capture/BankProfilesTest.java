@@ -0,0 +1,153 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+import org.json.JSONException;
+import org.junit.Test;
+
+/** Runs the profiles bundled with the app, read from its assets, the way BankProfileLoader does. */
+public class BankProfilesTest {
+    // 20 March 2024, 18:00 local time
+    private static final long REFERENCE = localTime(2024, 3, 20, 18, 0);
+
+    @Test
+    public void everyBundledProfileParsesItsBanksText() throws Exception {
+        BankProfiles profiles = bundled();
+        assertEquals(7, profiles.size());
+
+        expect(profiles, "com.c6bank.app", "c6bank", "Pix enviado", "Pix enviado para Maria Silva no valor de R$ 50,00",
+            TransactionParser.SENT, 5_000, "Maria Silva", 0L);
+        expect(profiles, "com.bancointer.android", "inter", "Pix recebido",
+            "Você recebeu um Pix de João Souza no valor de R$ 10,00", TransactionParser.RECEIVED, 1_000, "João Souza", 0L);
+        expect(profiles, "com.nu.production", "nubank", "Transferência recebida",
+            "Você recebeu uma transferência de Ana Lima e o valor de R$ 7,00 já está na sua conta",
+            TransactionParser.RECEIVED, 700, "Ana Lima", 0L);
+        expect(profiles, "com.bradesco", "bradesco", "Pix", "Pix enviado para Carlos Dias em 12/03 às 14:30 R$ 25,00",
+            TransactionParser.SENT, 2_500, "Carlos Dias", localTime(2024, 3, 12, 14, 30));
+        expect(profiles, "com.itau", "itau", "Pix", "Pix recebido de Paula Reis em 05/01/2024. Valor R$ 3,00",
+            TransactionParser.RECEIVED, 300, "Paula Reis", localTime(2024, 1, 5, 0, 0));
+        // No counterparty rules: the built-in extractor applies
+        expect(profiles, "com.santander.app", "santander", "Pix", "Pix enviado para Joana Prado R$ 8,00",
+            TransactionParser.SENT, 800, "Joana Prado", 0L);
+        expect(profiles, "br.com.bb.android", "bb", "Transferência",
+            "Transferência recebida de Pedro Alves em 10/02 às 09:15 R$ 40,00",
+            TransactionParser.RECEIVED, 4_000, "Pedro Alves", localTime(2024, 2, 10, 9, 15));
+    }
+
+    @Test
+    public void packagesFallBackToTheirParent() throws Exception {
+        BankProfiles profiles = bundled();
+        assertEquals("itau", profiles.forPackage("com.itau.empresas").id);
+        assertEquals("c6bank", profiles.forPackage("com.c6bank.app.beta").id);
+        assertNull(profiles.forPackage("com.itaucard"));
+        assertNull(profiles.forPackage("com"));
+        assertSame(BankProfile.GENERIC, profiles.profileFor("com.example.wallet"));
+
+        // Hints mark a bank app without choosing a profile
+        assertTrue(profiles.isBankApp("com.example.banco.digital"));
+        assertFalse(profiles.isBankApp("com.example.wallet"));
+    }
+
+    @Test
+    public void overrideReplacesProfilesWithTheSameId() throws Exception {
+        List<BankProfile.Spec> specs = new ArrayList<>();
+        List<String> hints = new ArrayList<>();
+        BankProfileFile.parse(asset(), specs, hints);
+        BankProfileFile.parse("{\"version\": 1, \"packageHints\": [\"carteira\"], \"profiles\": ["
+            + "{\"id\": \"nubank\", \"label\": \"Nu\", \"packages\": [\"com.nu.production\"],"
+            + " \"sent\": [\"paguei\"], \"received\": [\"caiu\"]},"
+            + "{\"id\": \"picpay\", \"packages\": [\"com.picpay\"], \"sent\": [\"enviado\"], \"received\": [\"recebido\"]}"
+            + "]}", specs, hints);
+        BankProfiles merged = BankProfiles.compile(specs, hints);
+
+        assertEquals(8, merged.size());
+        BankProfile nubank = merged.forPackage("com.nu.production");
+        assertEquals("Nu", nubank.label);
+        assertNull("the override's package list replaces the bundled one", merged.forPackage("com.nubank"));
+        assertEquals(TransactionParser.RECEIVED, nubank.parse("Caiu um Pix de R$ 5,00", null, REFERENCE).direction);
+        assertEquals("picpay", merged.forPackage("com.picpay").id);
+        assertEquals("c6bank", merged.forPackage("com.c6bank").id);
+        assertTrue(merged.isBankApp("com.example.carteira"));
+    }
+
+    @Test
+    public void malformedOverridesAreRejected() throws Exception {
+        assertRejected("{\"version\": 1, \"profiles\": [");
+        assertRejected("{\"version\": 2, \"profiles\": []}");
+        assertRejected("{\"profiles\": [{\"label\": \"No id\"}]}");
+        // Counterparty rules are objects, not patterns
+        assertRejected("{\"profiles\": [{\"id\": \"x\", \"counterparty\": [\"para (.+)\"]}]}");
+
+        List<BankProfile.Spec> specs = new ArrayList<>();
+        BankProfileFile.parse(asset(), specs, new ArrayList<String>());
+        BankProfileFile.parse("{\"profiles\": [{\"id\": \"broken\", \"packages\": [\"com.broken\"],"
+            + " \"sent\": [\"enviado\"], \"counterparty\": [{\"after\": \" \", \"until\": [\"em\"]}]}]}",
+            specs, new ArrayList<String>());
+        try {
+            BankProfiles.compile(specs, new ArrayList<String>());
+            fail("compiled a counterparty rule without a phrase");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Profile broken:"));
+        }
+    }
+
+    /** The profiles bundled with the app, compiled. */
+    static BankProfiles bundled() throws IOException, JSONException {
+        List<BankProfile.Spec> specs = new ArrayList<>();
+        List<String> hints = new ArrayList<>();
+        BankProfileFile.parse(asset(), specs, hints);
+        return BankProfiles.compile(specs, hints);
+    }
+
+    /** Each bundled profile, compiled on its own. */
+    static List<BankProfile> bundledProfiles() throws IOException, JSONException {
+        List<BankProfile.Spec> specs = new ArrayList<>();
+        BankProfileFile.parse(asset(), specs, new ArrayList<String>());
+        List<BankProfile> profiles = new ArrayList<>();
+        for (BankProfile.Spec spec : specs) profiles.add(BankProfile.compile(spec));
+        return profiles;
+    }
+
+    private static String asset() throws IOException {
+        String path = System.getProperty("bankProfiles");
+        assertNotNull("bankProfiles system property not set", path);
+        return new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8);
+    }
+
+    private static void expect(BankProfiles profiles, String pkg, String id, String title, String content,
+                               String direction, long cents, String contact, long dateMs) {
+        BankProfile profile = profiles.forPackage(pkg);
+        assertNotNull(pkg, profile);
+        assertEquals(pkg, id, profile.id);
+        TransactionParser.Result r = profile.parse(content, title, REFERENCE);
+        assertTrue(id, r.financial);
+        assertTrue(id, r.transfer);
+        assertEquals(id, direction, r.direction);
+        assertEquals(id, cents, r.amountCents);
+        assertEquals(id, contact, r.contact);
+        assertEquals(id, dateMs, r.dateMs);
+    }
+
+    private static void assertRejected(String json) {
+        try {
+            BankProfileFile.parse(json, new ArrayList<BankProfile.Spec>(), new ArrayList<String>());
+            fail("accepted " + json);
+        } catch (JSONException expected) {
+        }
+    }
+
+    private static long localTime(int year, int month, int day, int hour, int minute) {
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(year, month - 1, day, hour, minute, 0);
+        return cal.getTimeInMillis();
+    }
+}
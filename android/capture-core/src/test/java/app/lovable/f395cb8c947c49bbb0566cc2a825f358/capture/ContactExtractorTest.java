@@ -0,0 +1,205 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Fuzz tests for the counterparty extractor: on inputs under the cap it agrees with the original
+ * per-keyword regular expressions, tried in their original order, and no input, however
+ * adversarial, takes longer than a fixed budget, with the built-in rules or a bundled profile's.
+ */
+public class ContactExtractorTest {
+    private static final long SEED = 0x5EEDC0DEL;
+
+    // Generous for a shared CI machine; the extractor reads at most 8K chars
+    private static final long WORST_CASE_NANOS = 5_000_000L;
+    private static final int TIMING_RUNS = 5;
+    private static final int SCREEN_CHARS = 64 * 1024;
+
+    // The original rules, each searched over the whole text in this order, kept as the reference
+    private static final Pattern[] KEYWORD_RULES = {
+        Pattern.compile("(?i)\\bpara\\s+([A-Za-zÀ-ÿ'\\s]{2,80})"),
+        Pattern.compile("(?i)\\brecebido(?:\\(a\\))?\\s+de\\s+['\"]?([A-Za-zÀ-ÿ'\\s]{2,80})"),
+        Pattern.compile("(?i)\\bde\\s+['\"]?([A-Za-zÀ-ÿ'\\s]{2,80})"),
+    };
+    // A name ends before these words, and before the "R" of a trailing "R$"
+    private static final Pattern STOP_WORD = Pattern.compile("(?i)(?<=^|\\s)(?:no|na|em|valor|para)(?=\\s|$)");
+    private static final Pattern TRAILING_R = Pattern.compile("(?i)(?:^|(?<=\\s))r\\z");
+    private static final Pattern FULL_NAME = Pattern.compile(
+        "([A-ZÁÉÍÓÚÀÂÊÔÃÕÇ]{2,}(?:\\s+[A-ZÁÉÍÓÚÀÂÊÔÃÕÇ]{2,})+)");
+
+    private static final String[] TOKENS = {
+        "para", "PARA", "Para", "de", "DE", "recebido", "Recebido", "(a)", "(A)", "parade", "dez",
+        " ", " ", " ", "  ", "\t", "\n", " ", "'", "\"", ".", ",", "…", "...", ":", "-",
+        "Maria", "SILVA", "JOÃO", "José", "d'Ávila", "X", "Ç", "é", "ÿ", "×", "ı", "_", "R$", "1", "42,50",
+        "PIX", "enviado", "você", "recebeu", "Transferência", "no", "NO", "valor", "em", "na", "nome", "R", "$",
+    };
+
+    @Test
+    public void extractsCounterpartyFromTypicalTexts() {
+        assertEquals("Maria Silva", TransactionParser.extractContact("Pix de R$ 50,00 recebido de Maria Silva"));
+        assertEquals("João Souza", TransactionParser.extractContact("Você enviou R$ 10,00 para João Souza."));
+        assertEquals("Ana Paula", TransactionParser.extractContact("Transferência de R$ 5,00 recebido(a) de \"Ana Paula\""));
+        assertEquals("FULANO SOUZA", TransactionParser.extractContact("Comprovante R$ 12,00 FULANO SOUZA 12/03"));
+        assertEquals("JOAO SILVA", TransactionParser.extractContact("Você recebeu um Pix de JOAO SILVA no valor de R$ 5,00"));
+        assertEquals("Maria Souza", TransactionParser.extractContact("Pix de Maria Souza em 12/03"));
+        assertEquals(TransactionParser.UNKNOWN_CONTACT, TransactionParser.extractContact("R$ 12,00"));
+        assertEquals(TransactionParser.UNKNOWN_CONTACT, TransactionParser.extractContact(""));
+        assertEquals(TransactionParser.UNKNOWN_CONTACT, TransactionParser.extractContact(null));
+    }
+
+    @Test
+    public void paraWinsOverAnEarlierDe() {
+        assertEquals("maria", TransactionParser.extractContact("Pix recebido de joao para maria"));
+        assertEquals("Maria Lima", TransactionParser.extractContact("Transferência de João Souza para Maria Lima"));
+        // "recebido de" still wins over a bare "de" that comes first
+        assertEquals("Ana Lima", TransactionParser.extractContact("Pix de R$ 5,00 recebido de Ana Lima"));
+    }
+
+    @Test
+    public void nameStopsBeforeTheAmount() {
+        assertEquals("JOAO SILVA", TransactionParser.extractContact("Pix de JOAO SILVA no valor de R$ 5,00"));
+        assertEquals("Ana Paula", TransactionParser.extractContact("Transferência recebida de Ana Paula R$ 7,00"));
+        assertEquals("Ana Paula", TransactionParser.extractContact("Pix de Ana Paula valor R$ 7,00"));
+        assertEquals("Maria das Dores", TransactionParser.extractContact("Pix de Maria das Dores 12,00"));
+    }
+
+    @Test
+    public void profileRulesTakeTheShortestNameBeforeAnEnding() {
+        ContactExtractor.Rule[] rules = {
+            new ContactExtractor.Rule("transferência de", Arrays.asList("e o valor", "no valor")),
+            new ContactExtractor.Rule("para", Arrays.asList("foi", "com sucesso")),
+        };
+        assertEquals("Ana Lima", ContactExtractor.extract("Você recebeu uma TRANSFERENCIA DE Ana Lima e o valor", rules));
+        assertEquals("Ana Lima", ContactExtractor.extract("Transferência de Ana Lima, R$ 7,00", rules));
+        assertEquals("Maria", ContactExtractor.extract("Pix para Maria foi enviado com sucesso", rules));
+        assertEquals("Maria Souza", ContactExtractor.extract("Pix para Maria Souza", rules));
+        // An ending must be a whole word, and a name must not run into other chars
+        assertEquals("Maria foice", ContactExtractor.extract("Pix para Maria foice.", rules));
+        assertNull(ContactExtractor.extract("Pix para Maria R$ 5,00", rules));
+        // A later occurrence is tried when the first has no ending
+        assertEquals("João", ContactExtractor.extract("para 10 pessoas. Pix para João foi", rules));
+        assertNull(ContactExtractor.extract("comparado a João foi", rules));
+        assertNull(ContactExtractor.extract(null, rules));
+    }
+
+    @Test
+    public void fuzzedTextsMatchRegexRules() {
+        Random random = new Random(SEED);
+        for (int n = 0; n < 200_000; n++) {
+            String text = randomText(random, 1 + random.nextInt(40));
+            assertEquals("input: [" + text + "]", reference(text), TransactionParser.extractContact(text));
+        }
+    }
+
+    @Test
+    public void textPastCapIsIgnored() {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < ContactExtractor.MAX_INPUT_CHARS) sb.append("saldo 1,00 ");
+        String text = sb.append("para Maria Silva").toString();
+        assertEquals(TransactionParser.UNKNOWN_CONTACT, TransactionParser.extractContact(text));
+        assertEquals("Maria Silva", TransactionParser.extractContact("para Maria Silva. " + text));
+    }
+
+    @Test
+    public void worstCaseTimePerInputIsBounded() throws Exception {
+        Random random = new Random(SEED);
+        List<String> inputs = new ArrayList<>();
+        inputs.add(repeat("A", SCREEN_CHARS));
+        inputs.add(repeat("AB ", SCREEN_CHARS / 3) + "1");
+        inputs.add(repeat("A ", SCREEN_CHARS / 2));
+        inputs.add(repeat("de ", SCREEN_CHARS / 3));
+        inputs.add(repeat("de 1 ", SCREEN_CHARS / 5));
+        inputs.add(repeat("recebido de ", SCREEN_CHARS / 12));
+        inputs.add("de" + repeat(" ", SCREEN_CHARS - 3) + "1");
+        inputs.add("para" + repeat(" ", SCREEN_CHARS - 5) + "1");
+        inputs.add(repeat("a", SCREEN_CHARS));
+        inputs.add(repeat("Maria da Silva ", SCREEN_CHARS / 15));
+        inputs.add(repeat("'\" ", SCREEN_CHARS / 3));
+        // Profile patterns take a lazy run of up to 80 name chars, then look for an ending
+        inputs.add(repeat("para " + repeat("a", 79) + " ", SCREEN_CHARS / 85));
+        inputs.add(repeat("de a ", SCREEN_CHARS / 5));
+        inputs.add(repeat("transferência de ", SCREEN_CHARS / 17));
+        inputs.add(repeat("de foi ", SCREEN_CHARS / 7));
+        for (int n = 0; n < 50; n++) inputs.add(randomScreen(random));
+
+        // GENERIC has no patterns of its own: it is the built-in extractor
+        List<BankProfile> profiles = new ArrayList<>();
+        profiles.add(BankProfile.GENERIC);
+        profiles.addAll(BankProfilesTest.bundledProfiles());
+
+        // Warm up so the budget measures steady-state code, not the interpreter
+        for (int round = 0; round < 20; round++) {
+            for (BankProfile profile : profiles) {
+                for (String input : inputs) profile.extractContact(input);
+            }
+        }
+
+        long worst = 0;
+        String worstCase = null;
+        for (BankProfile profile : profiles) {
+            for (String input : inputs) {
+                long best = Long.MAX_VALUE;
+                for (int run = 0; run < TIMING_RUNS; run++) {
+                    long start = System.nanoTime();
+                    profile.extractContact(input);
+                    best = Math.min(best, System.nanoTime() - start);
+                }
+                if (best > worst) {
+                    worst = best;
+                    worstCase = profile.id + " on input starting [" + input.substring(0, Math.min(40, input.length())) + "]";
+                }
+            }
+        }
+        assertTrue("worst case " + worst / 1000 + " µs: " + worstCase, worst <= WORST_CASE_NANOS);
+    }
+
+    private static String randomText(Random random, int tokens) {
+        StringBuilder sb = new StringBuilder();
+        for (int t = 0; t < tokens; t++) sb.append(TOKENS[random.nextInt(TOKENS.length)]);
+        return sb.toString();
+    }
+
+    private static String randomScreen(Random random) {
+        StringBuilder sb = new StringBuilder(SCREEN_CHARS);
+        while (sb.length() < SCREEN_CHARS) sb.append(TOKENS[random.nextInt(TOKENS.length)]);
+        return sb.toString();
+    }
+
+    private static String repeat(String s, int times) {
+        StringBuilder sb = new StringBuilder(s.length() * times);
+        for (int i = 0; i < times; i++) sb.append(s);
+        return sb.toString();
+    }
+
+    private static String reference(String text) {
+        if (text == null || text.isEmpty()) return TransactionParser.UNKNOWN_CONTACT;
+        for (Pattern rule : KEYWORD_RULES) {
+            Matcher m = rule.matcher(text);
+            while (m.find()) {
+                String candidate = m.group(1);
+                if (m.end() < text.length() && text.charAt(m.end()) == '$') {
+                    candidate = TRAILING_R.matcher(candidate).replaceFirst("");
+                }
+                Matcher stop = STOP_WORD.matcher(candidate);
+                if (stop.find()) candidate = candidate.substring(0, stop.start());
+                String name = TransactionParser.cleanName(candidate);
+                if (name != null) return name;
+            }
+        }
+        Matcher m = FULL_NAME.matcher(text);
+        while (m.find()) {
+            String name = TransactionParser.cleanName(m.group(1));
+            if (name != null) return name;
+        }
+        return TransactionParser.UNKNOWN_CONTACT;
+    }
+}
@@ -0,0 +1,126 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class EventJournalTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void compactionKeepsUnackedRecordsOnDisk() throws Exception {
+        File file = new File(tmp.getRoot(), "events.journal");
+        EventJournal journal = EventJournal.open(file);
+        int total = 2000; // well past the compaction threshold
+        for (int i = 0; i < total; i++) journal.append(event(i));
+
+        EventJournal.Page page = journal.readSince(0, 1500);
+        journal.ack(page.cursor);
+        assertEquals(total - 1500, journal.pending());
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+
+        // A fresh open of the same bytes, as after a crash, sees exactly the unacked records
+        EventJournal reopened = EventJournal.open(copyOf(file, "copy.journal"));
+        assertEquals(total - 1500, reopened.size());
+        EventJournal.Page rest = reopened.readSince(0, total);
+        assertEquals("key-1500", rest.events.get(0).eventKey);
+        assertEquals("key-" + (total - 1), rest.events.get(rest.events.size() - 1).eventKey);
+    }
+
+    @Test
+    public void restartAfterAckStillRemembersDeliveredKeys() throws Exception {
+        File file = new File(tmp.getRoot(), "acked.journal");
+        EventJournal journal = EventJournal.open(file);
+        for (int i = 0; i < 3; i++) assertTrue(journal.appendIfAbsent(event(i)));
+        journal.ack(journal.readSince(0, 10).cursor);
+        assertEquals(0, journal.size());
+        assertEquals(0, file.length());
+
+        EventJournal reopened = EventJournal.open(copyOf(file, "acked-copy.journal"));
+        assertEquals(0, reopened.size());
+        for (int i = 0; i < 3; i++) {
+            assertTrue(reopened.containsEventKey("key-" + i));
+            assertFalse(reopened.appendIfAbsent(event(i)));
+        }
+        assertTrue(reopened.appendIfAbsent(event(3)));
+    }
+
+    @Test
+    public void tornTailIsTruncatedOnOpen() throws Exception {
+        File file = new File(tmp.getRoot(), "torn.journal");
+        EventJournal journal = EventJournal.open(file);
+        journal.append(event(0));
+        journal.append(event(1));
+        long intact = file.length();
+        journal.append(event(2));
+
+        // Process death in the middle of the third write
+        File copy = copyOf(file, "torn-copy.journal");
+        try (RandomAccessFile raf = new RandomAccessFile(copy, "rw")) {
+            raf.setLength(file.length() - 5);
+        }
+        EventJournal reopened = EventJournal.open(copy);
+        assertEquals(2, reopened.size());
+        assertEquals(intact, copy.length());
+
+        // Appends continue after the last intact record
+        reopened.append(event(3));
+        EventJournal.Page page = reopened.readSince(0, 10);
+        assertEquals(3, page.events.size());
+        assertEquals("key-1", page.events.get(1).eventKey);
+        assertEquals("key-3", page.events.get(2).eventKey);
+    }
+
+    @Test
+    public void corruptRecordEndsRecovery() throws Exception {
+        File file = new File(tmp.getRoot(), "corrupt.journal");
+        EventJournal journal = EventJournal.open(file);
+        journal.append(event(0));
+        long first = file.length();
+        journal.append(event(1));
+        journal.append(event(2));
+
+        // One flipped byte in the second record's payload fails its CRC
+        File copy = copyOf(file, "corrupt-copy.journal");
+        try (RandomAccessFile raf = new RandomAccessFile(copy, "rw")) {
+            raf.seek(first + 20);
+            int b = raf.read();
+            raf.seek(first + 20);
+            raf.write(b ^ 0xff);
+        }
+        EventJournal reopened = EventJournal.open(copy);
+        assertEquals(1, reopened.size());
+        assertEquals(first, copy.length());
+        assertEquals("key-0", reopened.readAll().get(0).eventKey);
+    }
+
+    // A fresh open of the same bytes, as after the process died
+    private File copyOf(File file, String name) throws Exception {
+        File copy = new File(tmp.getRoot(), name);
+        Files.copy(file.toPath(), copy.toPath());
+        for (String sidecar : new String[] { ".ack", ".keys" }) {
+            File from = new File(file.getPath() + sidecar);
+            if (from.exists()) Files.copy(from.toPath(), new File(copy.getPath() + sidecar).toPath());
+        }
+        return copy;
+    }
+
+    private static CapturedTransaction event(int i) {
+        CapturedTransaction tx = new CapturedTransaction();
+        tx.eventKey = "key-" + i;
+        tx.id = "id-" + i;
+        tx.type = TransactionParser.RECEIVED;
+        tx.amountCents = 100 + i;
+        tx.dateMs = 1_700_000_000_000L + i;
+        tx.contact = "Maria Silva";
+        tx.description = "PIX";
+        return tx;
+    }
+}
@@ -0,0 +1,99 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class EventKeyIndexTest {
+    private static final long NO_EXPIRY = Long.MAX_VALUE / 2;
+    // Capacity 3 or 4 gives a table of 8 slots
+    private static final int MASK = 7;
+
+    @Test
+    public void keepsExactlyTheLastKeys() {
+        EventKeyIndex index = new EventKeyIndex(100, NO_EXPIRY);
+        for (int i = 0; i < 250; i++) assertTrue(index.add("key-" + i, i));
+        assertEquals(100, index.size());
+        for (int i = 0; i < 150; i++) assertFalse("key-" + i, index.contains("key-" + i));
+        for (int i = 150; i < 250; i++) assertTrue("key-" + i, index.contains("key-" + i));
+        assertFalse(index.add("key-249", 250));
+    }
+
+    @Test
+    public void evictionInsideAProbeClusterKeepsTheRestReachable() {
+        List<String> cluster = keysWithHome(3, 3);
+        EventKeyIndex index = new EventKeyIndex(3, NO_EXPIRY);
+        for (String key : cluster) assertTrue(index.add(key, 0));
+
+        // Evicts the head of the cluster; the two keys probed past it shift back
+        assertTrue(index.add("other", 1));
+        assertFalse(index.contains(cluster.get(0)));
+        assertTrue(index.contains(cluster.get(1)));
+        assertTrue(index.contains(cluster.get(2)));
+        assertTrue(index.contains("other"));
+
+        assertTrue(index.add("another", 2));
+        assertFalse(index.contains(cluster.get(1)));
+        assertTrue(index.contains(cluster.get(2)));
+        assertFalse(index.add(cluster.get(2), 3));
+    }
+
+    @Test
+    public void probesWrapAroundTheEndOfTheTable() {
+        List<String> cluster = keysWithHome(MASK, 3);
+        EventKeyIndex index = new EventKeyIndex(3, NO_EXPIRY);
+        for (String key : cluster) assertTrue(index.add(key, 0));
+        for (String key : cluster) assertTrue(index.contains(key));
+
+        // The key in the last slot goes; the ones wrapped to the start must still be found
+        assertTrue(index.add("other", 1));
+        assertFalse(index.contains(cluster.get(0)));
+        assertTrue(index.contains(cluster.get(1)));
+        assertTrue(index.contains(cluster.get(2)));
+        assertTrue(index.add(cluster.get(0), 2));
+    }
+
+    @Test
+    public void keysExpireAfterMaxAge() {
+        EventKeyIndex index = new EventKeyIndex(16, 1_000);
+        index.add("old", 0);
+        index.add("recent", 500);
+        index.add("new", 1_200);
+        assertFalse(index.contains("old"));
+        assertTrue(index.contains("recent"));
+        assertTrue(index.contains("new"));
+        assertEquals(2, index.size());
+        assertTrue(index.add("old", 1_300));
+    }
+
+    @Test
+    public void windowSurvivesWriteAndRead() throws Exception {
+        EventKeyIndex index = new EventKeyIndex(4, NO_EXPIRY);
+        for (int i = 0; i < 6; i++) index.add("key-" + i, i);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.writeTo(new DataOutputStream(bytes));
+
+        // A smaller window keeps the newest entries
+        EventKeyIndex restored = new EventKeyIndex(3, NO_EXPIRY);
+        restored.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(3, restored.size());
+        assertFalse(restored.contains("key-2"));
+        for (int i = 3; i < 6; i++) assertTrue(restored.contains("key-" + i));
+    }
+
+    private static List<String> keysWithHome(int home, int count) {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; keys.size() < count; i++) {
+            String key = "probe-" + i;
+            if (((int) EventKeyIndex.mix(EventKeyIndex.digest(key)) & MASK) == home) keys.add(key);
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,111 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class FinancialPreFilterTest {
+    private static final String OWN = "app.lovable.f395cb8c947c49bbb0566cc2a825f358";
+    private static final String PKG = "com.nu.production";
+    private static final long NOW = 1_700_000_000_000L;
+
+    private final ProfileRegistry profiles = new ProfileRegistry();
+    private final FinancialPreFilter filter = new FinancialPreFilter(OWN, profiles);
+
+    @Test
+    public void overlappingKeywordsAreAllFound() {
+        KeywordAutomaton.Builder builder = new KeywordAutomaton.Builder();
+        int he = builder.add("he", false);
+        int she = builder.add("she", false);
+        int his = builder.add("his", false);
+        int hers = builder.add("hers", false);
+        KeywordAutomaton automaton = builder.build();
+
+        assertEquals(bit(he) | bit(she) | bit(hers), automaton.scan("ushers"));
+        assertEquals(bit(his), automaton.scan("this"));
+        assertEquals(bit(he) | bit(she), automaton.scan("sshe"));
+        assertEquals(0L, automaton.scan("h e r s"));
+        assertEquals(0L, automaton.scan(null));
+    }
+
+    @Test
+    public void wholeWordKeywordsNeedBoundaries() {
+        KeywordAutomaton.Builder builder = new KeywordAutomaton.Builder();
+        int ted = builder.add("ted", true);
+        int pix = builder.add("pix", false);
+        KeywordAutomaton automaton = builder.build();
+
+        assertEquals(bit(ted), automaton.scan("TED recebida"));
+        assertEquals(bit(ted), automaton.scan("via ted."));
+        assertEquals(0L, automaton.scan("credited"));
+        assertEquals(0L, automaton.scan("ted2"));
+        assertEquals(bit(pix), automaton.scan("Pixel"));
+    }
+
+    @Test
+    public void inputIsAccentFolded() {
+        assertTrue(FinancialPreFilter.mentionsKeyword("TRANSFERÊNCIA RECEBIDA"));
+        assertTrue(FinancialPreFilter.mentionsKeyword("Transferencia feita"));
+        assertTrue(FinancialPreFilter.mentionsKeyword("Compra no DÉBITO"));
+        assertTrue(FinancialPreFilter.mentionsKeyword("Deposito em conta"));
+        assertTrue(FinancialPreFilter.mentionsKeyword("Total r$9,90"));
+        // "doc" is whole-word only
+        assertFalse(FinancialPreFilter.mentionsKeyword("Documento pronto"));
+        assertTrue(FinancialPreFilter.mentionsKeyword("Via DOC"));
+    }
+
+    @Test
+    public void promotionsAndChatsAreRejected() {
+        assertFalse(filter.accept("com.example.shop", "Só hoje!", "Frete grátis em todo o site", null, null));
+        assertFalse(filter.accept("com.example.shop", "Cupom", "Ganhe 20% de desconto na próxima compra", null,
+            new CharSequence[] { "Use o código OFERTA20" }));
+        assertFalse(filter.accept("com.whatsapp", "Maria", "Pix enviado, R$ 20,00", null, null));
+        assertFalse(filter.accept("com.whatsapp.w4b", "Loja", "Recebido o pagamento", null, null));
+        assertFalse(filter.accept("com.google.android.gm.lite", "Banco", "Pix recebido", null, null));
+        assertFalse(filter.accept(OWN, "Pix recebido", "R$ 10,00", null, null));
+        assertFalse(filter.accept(null, "Pix recebido", "R$ 10,00", null, null));
+        assertEquals(7, filter.rejectedCount());
+        assertEquals(0, filter.acceptedCount());
+
+        // A sibling package is not covered by the deny entry
+        assertTrue(filter.accept("com.whatsappbank", null, "Pix recebido", null, null));
+    }
+
+    @Test
+    public void nothingTheClassifierAcceptsIsFilteredOut() {
+        // Title, text and lines of the notifications in NotificationClassifierTest
+        String[][] corpus = {
+            { "3 novos Pix recebidos", "R$ 10,00 de Maria Silva",
+                "R$ 10,00 de Maria Silva", "R$ 25,50 de João Souza", "R$ 10,00 de Ana Lima" },
+            { "2 novos Pix recebidos", null, "R$ 10,00 de Maria Silva", "R$ 10,00 de Maria  Silva" },
+            { "Pix recebido", null, "Você recebeu R$ 42,00", "de Maria Silva" },
+            { "Pix recebido", null, "R$ 10,00 de Maria Silva" },
+            { "Pix recebido", "Você recebeu R$ 10,00 de Maria Silva" },
+            { "2 novos Pix recebidos", null, "R$ 10,00 de Maria Silva", "R$ 25,50 de João Souza" },
+            { "3 novos Pix recebidos", null,
+                "R$ 10,00 de Maria Silva", "R$ 25,50 de João Souza", "R$ 7,00 de Ana Lima" },
+        };
+        NotificationClassifier classifier = new NotificationClassifier(profiles);
+        for (String[] n : corpus) {
+            String[] lines = n.length > 2 ? Arrays.copyOfRange(n, 2, n.length) : null;
+            List<CapturedTransaction> batch = classifier.classifyBatch(PKG, 1, NOW, n[0], n[1], null, lines, false, NOW);
+            assertFalse(n[0], batch.isEmpty());
+            assertTrue(n[0], filter.accept(PKG, n[0], n[1], null, lines));
+
+            // Each part the classifier reads on its own passes by itself too
+            if (lines == null) continue;
+            for (String line : lines) {
+                if (classifier.classify(PKG, 1, NOW, null, line, null, null, NOW) != null) {
+                    assertTrue(line, filter.accept(PKG, null, line, null, null));
+                }
+            }
+        }
+    }
+
+    private static long bit(int id) {
+        return 1L << id;
+    }
+}
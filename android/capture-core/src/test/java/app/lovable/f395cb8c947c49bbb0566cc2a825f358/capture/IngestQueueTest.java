@@ -0,0 +1,160 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Stress tests for the shared ingest queue: many producers, one consumer, nothing lost, nothing
+ * duplicated, and each producer's items seen in the order it submitted them.
+ */
+public class IngestQueueTest {
+    private static final int PRODUCERS = 16;
+    private static final int ITEMS_PER_PRODUCER = 50_000;
+
+    @Test
+    public void ringDeliversEveryItemOnceInProducerOrder() throws Exception {
+        MpscRing<long[]> ring = new MpscRing<>(64); // small, so producers keep hitting a full ring
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] producers = new Thread[PRODUCERS];
+        for (int p = 0; p < PRODUCERS; p++) {
+            final int producer = p;
+            producers[p] = new Thread(() -> {
+                awaitQuietly(start);
+                for (int i = 0; i < ITEMS_PER_PRODUCER; i++) {
+                    long[] item = { producer, i };
+                    while (!ring.offer(item)) Thread.yield();
+                }
+            });
+            producers[p].start();
+        }
+        start.countDown();
+
+        int[] nextExpected = new int[PRODUCERS];
+        long total = (long) PRODUCERS * ITEMS_PER_PRODUCER;
+        for (long received = 0; received < total; ) {
+            long[] item = ring.poll();
+            if (item == null) {
+                Thread.yield();
+                continue;
+            }
+            int producer = (int) item[0];
+            assertEquals("out of order or duplicated for producer " + producer, nextExpected[producer], item[1]);
+            nextExpected[producer]++;
+            received++;
+        }
+        for (Thread t : producers) t.join();
+        assertNull(ring.poll());
+        assertTrue(ring.isEmpty());
+        for (int count : nextExpected) assertEquals(ITEMS_PER_PRODUCER, count);
+    }
+
+    @Test
+    public void queueHandsEveryCaptureToSingleConsumer() throws Exception {
+        int[] nextExpected = new int[PRODUCERS];
+        AtomicReference<Thread> consumerThread = new AtomicReference<>();
+        AtomicReference<String> failure = new AtomicReference<>();
+        IngestQueue<long[]> queue = new IngestQueue<>("ingest-test", 128, item -> {
+            // The handler must only ever run on one thread
+            Thread current = Thread.currentThread();
+            if (!consumerThread.compareAndSet(null, current) && consumerThread.get() != current) {
+                failure.compareAndSet(null, "handler ran on a second thread");
+            }
+            int producer = (int) item[0];
+            if (nextExpected[producer] != item[1]) {
+                failure.compareAndSet(null, "producer " + producer + " expected " + nextExpected[producer] + " got " + item[1]);
+            }
+            nextExpected[producer]++;
+        }, (item, e) -> failure.compareAndSet(null, "handler threw " + e));
+
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] producers = new Thread[PRODUCERS];
+        for (int p = 0; p < PRODUCERS; p++) {
+            final int producer = p;
+            producers[p] = new Thread(() -> {
+                awaitQuietly(start);
+                // The queue drops on a full ring; these producers retry so every item gets through
+                for (int i = 0; i < ITEMS_PER_PRODUCER; i++) {
+                    long[] item = { producer, i };
+                    while (!queue.submit(item)) Thread.yield();
+                }
+            });
+            producers[p].start();
+        }
+        start.countDown();
+        for (Thread t : producers) t.join();
+        queue.shutdown();
+
+        assertNull(failure.get(), failure.get());
+        long total = (long) PRODUCERS * ITEMS_PER_PRODUCER;
+        assertEquals(total, queue.submittedCount());
+        assertEquals(total, queue.processedCount());
+        assertEquals(0, queue.failedCount());
+        for (int count : nextExpected) assertEquals(ITEMS_PER_PRODUCER, count);
+    }
+
+    @Test
+    public void fullQueueDropsAndCountsWithoutWaiting() throws Exception {
+        CountDownLatch inHandler = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        IngestQueue<Integer> queue = new IngestQueue<>("ingest-full-test", 4, item -> {
+            inHandler.countDown();
+            awaitQuietly(release);
+        }, (item, e) -> { });
+
+        assertTrue(queue.submit(0));
+        assertTrue(inHandler.await(5, TimeUnit.SECONDS));
+        // The consumer is stuck on item 0, so the ring fills and later submits return at once
+        int accepted = 1;
+        int attempts = 1;
+        while (attempts < 20) {
+            attempts++;
+            if (queue.submit(attempts)) accepted++;
+        }
+        assertEquals(5, accepted);
+        assertEquals(attempts - accepted, queue.droppedCount());
+
+        release.countDown();
+        queue.shutdown();
+        assertEquals(accepted, queue.submittedCount());
+        assertEquals(accepted, queue.processedCount());
+    }
+
+    @Test
+    public void handlerFailureIsReportedAndConsumingGoesOn() throws Exception {
+        List<Integer> handled = new ArrayList<>();
+        List<String> reported = new ArrayList<>();
+        IngestQueue<Integer> queue = new IngestQueue<>("ingest-failure-test", 8, item -> {
+            if (item == 1) throw new IllegalStateException("store unavailable");
+            handled.add(item);
+        }, (item, e) -> reported.add(item + ": " + e.getMessage()));
+
+        for (int i = 0; i < 3; i++) assertTrue(queue.submit(i));
+        queue.shutdown();
+
+        assertEquals(1, queue.failedCount());
+        assertEquals(3, queue.processedCount());
+        assertEquals(2, handled.size());
+        assertEquals(1, reported.size());
+        assertEquals("1: store unavailable", reported.get(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void ringRejectsCapacityThatIsNotAPowerOfTwo() {
+        new MpscRing<Object>(100);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class NormalizedTextTest {
+
+    @Test
+    public void collapsesWhitespaceAndFoldsInOnePass() {
+        NormalizedText n = NormalizedText.forThread().of("  Pix  Recebido ",
+            "Você recebeu\n\n R$ 10,00", "  Transferência\t de  JOÃO ", new String[] { " linha 1 ", null, "" });
+
+        assertEquals("Transferência de JOÃO Você recebeu R$ 10,00 linha 1", n.content().toString());
+        assertEquals("Pix Recebido", n.title().toString());
+        assertEquals(n.content() + " " + n.title(), n.all().toString());
+        assertEquals("transferencia de joao voce recebeu r$ 10,00 linha 1", n.foldedContent().toString());
+        assertEquals("pix recebido", n.foldedTitle().toString());
+        assertEquals(n.all().length(), n.foldedAll().length());
+        assertEquals(n.content().toString().hashCode(), n.contentHash());
+    }
+
+    @Test
+    public void emptyFieldsLeaveNoStraySpaces() {
+        NormalizedText n = NormalizedText.forThread().of(null, " \n ", null, null);
+        assertEquals(0, n.all().length());
+        assertEquals(0, n.title().length());
+
+        n = NormalizedText.forThread().of("Só título", null, "", null);
+        assertEquals("", n.content().toString());
+        assertEquals("Só título", n.title().toString());
+        assertEquals("Só título", n.all().toString());
+    }
+
+    @Test
+    public void buffersGrowAndAreReused() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5000; i++) sb.append("palavra   ");
+        NormalizedText n = NormalizedText.forThread().of(null, sb, null, null);
+        assertEquals(5000 * "palavra ".length() - 1, n.content().length());
+
+        NormalizedText again = NormalizedText.forThread().of("t", "curto", null, null);
+        assertSame(n, again);
+        assertEquals("curto", again.content().toString());
+        assertEquals("urt", again.content().subSequence(1, 4).toString());
+    }
+
+    @Test
+    public void parsersReadNormalizedViews() {
+        TransactionParser.Result r = TransactionParser.parse("Transferencia  recebida de Maria Souza. Valor R$ 1.234,56", "Crédito");
+        assertTrue(r.financial);
+        assertEquals(TransactionParser.RECEIVED, r.direction);
+        assertEquals(123456, r.amountCents);
+        assertEquals("Maria Souza", r.contact);
+    }
+}
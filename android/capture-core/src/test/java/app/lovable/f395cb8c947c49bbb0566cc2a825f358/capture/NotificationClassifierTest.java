@@ -0,0 +1,105 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class NotificationClassifierTest {
+    private static final String PKG = "com.nu.production";
+    // The pipeline evicts correlation entries by the real clock
+    private static final long NOW = System.currentTimeMillis();
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private final NotificationClassifier classifier = new NotificationClassifier(new ProfileRegistry());
+
+    @Test
+    public void inboxDigestYieldsOneTransactionPerLine() {
+        List<CapturedTransaction> batch = classifier.classifyBatch(PKG, 1, NOW, "3 novos Pix recebidos",
+            "R$ 10,00 de Maria Silva", null,
+            new String[] { "R$ 10,00 de Maria Silva", "R$ 25,50 de João Souza", "R$ 10,00 de Ana Lima" }, false, NOW);
+
+        assertEquals(3, batch.size());
+        assertEquals(1000, batch.get(0).amountCents);
+        assertEquals(2550, batch.get(1).amountCents);
+        assertEquals("João Souza", batch.get(1).contact);
+        for (CapturedTransaction tx : batch) {
+            assertEquals(TransactionParser.RECEIVED, tx.type);
+            assertTrue(tx.summaryLine);
+        }
+        assertEquals(3, distinct(batch).size());
+    }
+
+    @Test
+    public void equalLinesAreSeparatePayments() {
+        List<CapturedTransaction> batch = classifier.classifyBatch(PKG, 1, NOW, "2 novos Pix recebidos", null, null,
+            new String[] { "R$ 10,00 de Maria Silva", "R$ 10,00 de Maria  Silva" }, false, NOW);
+
+        assertEquals(2, batch.size());
+        assertEquals(2, distinct(batch).size());
+        assertNotEquals(batch.get(0).id, batch.get(1).id);
+    }
+
+    @Test
+    public void linesOfOneMessageAreClassifiedWhole() {
+        List<CapturedTransaction> batch = classifier.classifyBatch(PKG, 1, NOW, "Pix recebido", null, null,
+            new String[] { "Você recebeu R$ 42,00", "de Maria Silva" }, false, NOW);
+
+        assertEquals(1, batch.size());
+        assertEquals(4200, batch.get(0).amountCents);
+        assertEquals("Maria Silva", batch.get(0).contact);
+        assertFalse(batch.get(0).summaryLine);
+        assertEquals(PKG + ":1:" + NOW, batch.get(0).eventKey);
+    }
+
+    @Test
+    public void summaryWithoutPaymentLinesDefersToItsChildren() {
+        assertTrue(classifier.classifyBatch(PKG, 9, NOW, "Pix recebidos", "Você recebeu R$ 35,50 em 2 Pix", null, null,
+            true, NOW).isEmpty());
+
+        List<CapturedTransaction> one = classifier.classifyBatch(PKG, 9, NOW, "Pix recebido", null, null,
+            new String[] { "R$ 10,00 de Maria Silva" }, true, NOW);
+        assertEquals(1, one.size());
+        assertTrue(one.get(0).summaryLine);
+    }
+
+    @Test
+    public void summaryLinesMergeWithChildrenAndRepostsAreDuplicates() throws Exception {
+        CapturePipeline pipeline = new CapturePipeline(EventJournal.open(new File(tmp.getRoot(), "events.journal")));
+
+        CapturedTransaction child = classifier.classify(PKG, 2, NOW, "Pix recebido", "Você recebeu R$ 10,00 de Maria Silva",
+            null, null, NOW);
+        assertEquals(CapturePipeline.Outcome.STORED, pipeline.submit(child));
+
+        String[] lines = { "R$ 10,00 de Maria Silva", "R$ 25,50 de João Souza" };
+        List<CapturedTransaction> summary = classifier.classifyBatch(PKG, 9, NOW + 1, "2 novos Pix recebidos", null, null,
+            lines, true, NOW + 1);
+        CapturePipeline.Outcome[] outcomes = pipeline.submitAll(summary);
+        assertEquals(CapturePipeline.Outcome.MERGED, outcomes[0]);
+        assertEquals(child.id, summary.get(0).correlatedWith);
+        assertEquals(CapturePipeline.Outcome.STORED, outcomes[1]);
+        assertEquals(1, child.sources.size());
+
+        // The app reposts the summary with one more line; only that line is new
+        List<CapturedTransaction> updated = classifier.classifyBatch(PKG, 9, NOW + 2, "3 novos Pix recebidos", null, null,
+            new String[] { lines[0], lines[1], "R$ 7,00 de Ana Lima" }, true, NOW + 2);
+        assertEquals(Arrays.asList(CapturePipeline.Outcome.DUPLICATE, CapturePipeline.Outcome.DUPLICATE,
+            CapturePipeline.Outcome.STORED), Arrays.asList(pipeline.submitAll(updated)));
+    }
+
+    private static List<String> distinct(List<CapturedTransaction> batch) {
+        List<String> keys = new ArrayList<>();
+        for (CapturedTransaction tx : batch) {
+            if (!keys.contains(tx.eventKey)) keys.add(tx.eventKey);
+        }
+        return keys;
+    }
+}
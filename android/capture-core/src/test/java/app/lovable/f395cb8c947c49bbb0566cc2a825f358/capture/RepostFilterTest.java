@@ -0,0 +1,56 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class RepostFilterTest {
+    private static final String PKG = "com.nu.production";
+
+    @Test
+    public void unchangedRepostIsSkippedAndCounted() {
+        RepostFilter filter = new RepostFilter(8);
+        long digest = RepostFilter.digest("Pix recebido", "R$ 10,00 de Maria", "", null);
+
+        assertFalse(filter.isRepost(PKG, 7, null, digest));
+        assertTrue(filter.isRepost(PKG, 7, null, digest));
+        assertTrue(filter.isRepost(PKG, 7, null, digest));
+        assertEquals(2, filter.skippedCount());
+
+        // Same text under another id or tag is another notification
+        assertFalse(filter.isRepost(PKG, 8, null, digest));
+        assertFalse(filter.isRepost(PKG, 7, "pix", digest));
+    }
+
+    @Test
+    public void changedTextAndRemovalLetThePostThrough() {
+        RepostFilter filter = new RepostFilter(8);
+        long first = RepostFilter.digest("Pix recebido", "R$ 10,00 de Maria", "", null);
+        long updated = RepostFilter.digest("Pix recebido", "R$ 10,00 de Maria", "", new String[] { "Saldo R$ 90,00" });
+
+        assertFalse(filter.isRepost(PKG, 7, null, first));
+        assertFalse(filter.isRepost(PKG, 7, null, updated));
+        filter.forget(PKG, 7, null);
+        assertFalse(filter.isRepost(PKG, 7, null, updated));
+        assertEquals(0, filter.skippedCount());
+    }
+
+    @Test
+    public void digestSeparatesFields() {
+        assertNotEquals(RepostFilter.digest("ab", "c", null, null), RepostFilter.digest("a", "bc", null, null));
+        assertNotEquals(RepostFilter.digest("a", null, null, new String[] { "b" }),
+            RepostFilter.digest("a", null, null, new String[] { "", "b" }));
+    }
+
+    @Test
+    public void leastRecentlySeenKeyIsEvicted() {
+        RepostFilter filter = new RepostFilter(2);
+        filter.isRepost(PKG, 1, null, 1L);
+        filter.isRepost(PKG, 2, null, 2L);
+        filter.isRepost(PKG, 1, null, 1L); // touches 1, so 2 is now the eldest
+        filter.isRepost(PKG, 3, null, 3L);
+
+        assertTrue(filter.isRepost(PKG, 1, null, 1L));
+        assertFalse(filter.isRepost(PKG, 2, null, 2L));
+    }
+}
@@ -0,0 +1,103 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+public class TransactionCorrelatorTest {
+    private static final long BUCKET = TransactionCorrelator.BUCKET_MS;
+    // Start of a bucket
+    private static final long T0 = 1_700_000_000_000L / BUCKET * BUCKET;
+
+    @Test
+    public void screenFirstThenEarlierDatedNotificationAcrossBoundary() {
+        TransactionCorrelator correlator = new TransactionCorrelator();
+        long screenTime = T0 + BUCKET + 10_000; // 10 s into the next bucket
+        CapturedTransaction screen = capture(CapturedTransaction.CHANNEL_ACCESSIBILITY, screenTime, "Maria Silva");
+        assertNull(correlator.correlate(screen, screenTime));
+
+        // The profile's printed time, truncated to the minute, falls in the previous bucket
+        long printed = screenTime / 60_000 * 60_000 - 60_000;
+        assertTrue(printed < T0 + BUCKET);
+        CapturedTransaction notification = capture(CapturedTransaction.CHANNEL_NOTIFICATION, printed, "MARIA SILVA");
+        assertSame(screen, correlator.correlate(notification, screenTime + 2_000));
+    }
+
+    @Test
+    public void notificationFirstThenLaterScreenAcrossBoundary() {
+        TransactionCorrelator correlator = new TransactionCorrelator();
+        long printed = T0 + BUCKET - 30_000;
+        CapturedTransaction notification = capture(CapturedTransaction.CHANNEL_NOTIFICATION, printed, "Maria Silva");
+        assertNull(correlator.correlate(notification, printed + 5_000));
+
+        long screenTime = T0 + BUCKET + 20_000;
+        CapturedTransaction screen = capture(CapturedTransaction.CHANNEL_ACCESSIBILITY, screenTime, "Maria");
+        assertSame(notification, correlator.correlate(screen, screenTime));
+    }
+
+    @Test
+    public void futureDatedCaptureDoesNotEvictTheOthers() {
+        TransactionCorrelator correlator = new TransactionCorrelator();
+        CapturedTransaction notification = capture(CapturedTransaction.CHANNEL_NOTIFICATION, T0, "Maria Silva");
+        assertNull(correlator.correlate(notification, T0));
+
+        // A date parsed a day ahead, for another payment
+        CapturedTransaction skewed = capture(CapturedTransaction.CHANNEL_NOTIFICATION, T0 + 24L * 60 * 60 * 1000, "João");
+        skewed.amountCents = 999;
+        assertNull(correlator.correlate(skewed, T0 + 1_000));
+
+        CapturedTransaction screen = capture(CapturedTransaction.CHANNEL_ACCESSIBILITY, T0 + 3_000, "Maria Silva");
+        assertSame(notification, correlator.correlate(screen, T0 + 3_000));
+    }
+
+    @Test
+    public void entriesAreEvictedByArrivalTime() {
+        TransactionCorrelator correlator = new TransactionCorrelator();
+        CapturedTransaction notification = capture(CapturedTransaction.CHANNEL_NOTIFICATION, T0, "Maria Silva");
+        assertNull(correlator.correlate(notification, T0));
+
+        long later = T0 + 4 * BUCKET;
+        CapturedTransaction screen = capture(CapturedTransaction.CHANNEL_ACCESSIBILITY, T0, "Maria Silva");
+        assertNull(correlator.correlate(screen, later));
+    }
+
+    @Test
+    public void lateCaptureWithAnOldDateIsKept() {
+        TransactionCorrelator correlator = new TransactionCorrelator();
+        // Delivered ten buckets after the time it prints
+        long arrival = T0 + 10 * BUCKET;
+        CapturedTransaction notification = capture(CapturedTransaction.CHANNEL_NOTIFICATION, T0, "Maria Silva");
+        assertNull(correlator.correlate(notification, arrival));
+
+        CapturedTransaction screen = capture(CapturedTransaction.CHANNEL_ACCESSIBILITY, T0 + 30_000, "Maria Silva");
+        assertSame(notification, correlator.correlate(screen, arrival + 5_000));
+
+        // Still kept two buckets after it arrived
+        CapturedTransaction summary = capture(CapturedTransaction.CHANNEL_NOTIFICATION, T0, "Maria Silva");
+        summary.summaryLine = true;
+        assertSame(notification, correlator.correlate(summary, arrival + 2 * BUCKET));
+    }
+
+    @Test
+    public void sameChannelIsNeverMerged() {
+        TransactionCorrelator correlator = new TransactionCorrelator();
+        assertNull(correlator.correlate(capture(CapturedTransaction.CHANNEL_NOTIFICATION, T0, "Maria"), T0));
+        assertNull(correlator.correlate(capture(CapturedTransaction.CHANNEL_NOTIFICATION, T0 + 1_000, "Maria"), T0 + 1_000));
+    }
+
+    private static CapturedTransaction capture(String channel, long dateMs, String contact) {
+        CapturedTransaction tx = new CapturedTransaction();
+        tx.type = TransactionParser.RECEIVED;
+        tx.amountCents = 5_000;
+        tx.dateMs = dateMs;
+        tx.contact = contact;
+        tx.source = "com.itau";
+        tx.channel = channel;
+        tx.id = channel + "-" + dateMs;
+        tx.sources = new ArrayList<>();
+        tx.sources.add(tx.provenance());
+        return tx;
+    }
+}
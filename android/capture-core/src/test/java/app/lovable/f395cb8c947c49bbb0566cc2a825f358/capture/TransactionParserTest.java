@@ -0,0 +1,85 @@
+package app.lovable.f395cb8c947c49bbb0566cc2a825f358.capture;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import org.junit.Test;
+
+public class TransactionParserTest {
+
+    @Test
+    public void paraIsPreferredOverAnEarlierDe() {
+        TransactionParser.Result r = TransactionParser.parse("Pix recebido de joao para maria R$ 10,00", null);
+        assertEquals("maria", r.contact);
+    }
+
+    @Test
+    public void counterpartyEndsBeforeTheAmount() {
+        TransactionParser.Result r = TransactionParser.parse("Você recebeu um Pix de JOAO SILVA no valor de R$ 5,00", null);
+        assertEquals("JOAO SILVA", r.contact);
+        assertEquals(500, r.amountCents);
+    }
+
+    @Test
+    public void cardAndStatementTermsAreNotTransfers() {
+        TransactionParser.Result card = TransactionParser.parse("Limite de crédito disponível R$ 1.500,00", null);
+        assertTrue(card.financial);
+        assertEquals(TransactionParser.RECEIVED, card.direction);
+        assertFalse(card.transfer);
+
+        TransactionParser.Result pix = TransactionParser.parse("Pix enviado para Maria Lima R$ 20,00", null);
+        assertTrue(pix.financial);
+        assertTrue(pix.transfer);
+    }
+
+    @Test
+    public void screenAcceptanceMatchesTheOriginalService() {
+        String[] screens = {
+            "Valor recebido R$ 50,00",
+            "Enviado para Maria Lima R$ 20,00",
+            "Pix enviado para Maria Lima R$ 20,00",
+            "Pagamento no débito R$ 50,00",
+            "Recebimento via crédito R$ 75,10",
+            "TRANSFERÊNCIA RECEBIDA de João R$ 12,00",
+            "Pagamento realizado R$ 50,00",
+            "Pix enviado",
+            "Limite de crédito disponível R$ 1.500,00",
+            "Saque realizado R$ 100,00",
+            "Depósito recebido R$ 100,00",
+            "Fatura em débito automático R$ 90,00",
+        };
+        for (String screen : screens) {
+            TransactionParser.Result r = TransactionParser.parse(screen, null);
+            assertEquals(screen, originalAccepts(screen), TransactionParser.isScreenTransaction(r));
+        }
+        assertTrue(TransactionParser.isScreenTransaction(TransactionParser.parse("Valor recebido R$ 50,00", null)));
+        assertFalse(TransactionParser.isScreenTransaction(TransactionParser.parse("Pagamento realizado R$ 50,00", null)));
+    }
+
+    // containsTransactionInfo followed by the type check in the service before the shared parser
+    private static boolean originalAccepts(String text) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        boolean keywords = lower.contains("pix") || lower.contains("transferência") || lower.contains("transferencia")
+            || lower.contains("enviado") || lower.contains("recebido") || lower.contains("pagamento")
+            || lower.contains("recebimento");
+        boolean typed = lower.contains("enviado") || lower.contains("débito") || lower.contains("debito")
+            || lower.contains("recebido") || lower.contains("crédito") || lower.contains("credito");
+        return keywords && typed && TransactionParser.extractAmount(text) > 0;
+    }
+
+    @Test
+    public void profilesMarkTransfersTheSameWay() {
+        BankProfile.Spec spec = new BankProfile.Spec();
+        spec.id = "test";
+        spec.packages = Arrays.asList("com.example.bank");
+        spec.sent = Arrays.asList("enviado", "debito");
+        spec.received = Arrays.asList("recebido", "credito");
+        spec.financial = Arrays.asList("pix", "pagamento", "debito", "credito");
+        BankProfile profile = BankProfile.compile(spec);
+
+        assertFalse(profile.parse("Fatura: débito automático R$ 90,00", null, 0L).transfer);
+        assertTrue(profile.parse("Pagamento enviado R$ 90,00", null, 0L).transfer);
+    }
+}
@@ -36,6 +36,22 @@ export const PermissionDialog = ({ onComplete }: PermissionDialogProps) => {
     }
   };
 
+  // Resolves to a function that stops listening
+  const watchUntilGranted = async (onGranted?: () => void) => {
+    const handle = await HybridBankNotifications.addListener('serviceStatusChanged', (status) => {
+      setNotificationGranted(status.notificationEnabled);
+      setAccessibilityGranted(status.accessibilityEnabled);
+      
+      if (status.enabled) {
+        handle.remove();
+        onGranted?.();
+        setStep('complete');
+        onComplete?.();
+      }
+    });
+    return () => handle.remove();
+  };
+
   const requestNotificationPermission = async () => {
     alert('🔧 DEBUG: Configurar Agora button clicked!');
     setStep('notification');
@@ -46,23 +62,12 @@ export const PermissionDialog = ({ onComplete }: PermissionDialogProps) => {
       await HybridBankNotifications.requestNotificationPermission();
       alert('🔧 DEBUG: Native dialog should appear now!');
       
-      // Start checking permissions periodically while user is in settings
-      const checkInterval = setInterval(async () => {
-        const status = await HybridBankNotifications.isEnabled();
-        setNotificationGranted(status.notificationEnabled);
-        setAccessibilityGranted(status.accessibilityEnabled);
-        
-        if (status.notificationEnabled || status.accessibilityEnabled) {
-          clearInterval(checkInterval);
-          alert('🎉 DEBUG: Permission granted! Setup complete!');
-          setStep('complete');
-          onComplete?.();
-        }
-      }, 2000);
+      // Wait for the native side to report the change while user is in settings
+      const stop = await watchUntilGranted(() => alert('🎉 DEBUG: Permission granted! Setup complete!'));
       
-      // Stop checking after 30 seconds
+      // Stop waiting after 30 seconds
       setTimeout(() => {
-        clearInterval(checkInterval);
+        stop();
         setChecking(false);
         alert('⏰ DEBUG: Stopped checking after 30 seconds');
       }, 30000);
@@ -76,22 +81,12 @@ export const PermissionDialog = ({ onComplete }: PermissionDialogProps) => {
     setStep('accessibility');
     try {
       await HybridBankNotifications.requestAccessibilityPermission();
-      // Start checking permissions periodically while user is in settings
-      const checkInterval = setInterval(async () => {
-        const status = await HybridBankNotifications.isEnabled();
-        setNotificationGranted(status.notificationEnabled);
-        setAccessibilityGranted(status.accessibilityEnabled);
-        
-        if (status.accessibilityEnabled || status.notificationEnabled) {
-          clearInterval(checkInterval);
-          setStep('complete');
-          onComplete?.();
-        }
-      }, 2000);
+      // Wait for the native side to report the change while user is in settings
+      const stop = await watchUntilGranted();
       
-      // Stop checking after 30 seconds
+      // Stop waiting after 30 seconds
       setTimeout(() => {
-        clearInterval(checkInterval);
+        stop();
         setChecking(false);
       }, 30000);
     } catch (error) {
@@ -1,9 +1,74 @@
-import { useState, useEffect } from 'react';
+import { useState, useEffect, useMemo } from 'react';
+import { Capacitor } from '@capacitor/core';
 import { Transaction, MonthlyData } from '../types/transaction';
 import { HybridBankNotifications, type BankTransactionEvent } from '../lib/hybridBankNotifications';
+import type { ContactSpending, SpendingSummary } from '../lib/aiService';
 
 const STORAGE_KEY = 'transactions_v1';
 
+// On device the history lives in the native store and is loaded a month at a time;
+// the browser build keeps it in localStorage.
+const useNativeStore = Capacitor.isNativePlatform();
+// The current month plus the two before it: loaded on device, and charted from the totals
+const HISTORY_MONTHS = 3;
+const PAGE_SIZE = 200;
+const FEED_PAGE_SIZE = 100;
+
+type MonthTotals = { received: number; sent: number };
+
+// "yyyy-MM" in local time, the key the native rollups use
+const monthKeyOf = (d: Date): string =>
+  `${d.getFullYear()}-${String(d.getMonth() + 1).padStart(2, '0')}`;
+
+const historyRange = () => {
+  const now = new Date();
+  return {
+    fromMonth: monthKeyOf(new Date(now.getFullYear(), now.getMonth() - (HISTORY_MONTHS - 1), 1)),
+    toMonth: monthKeyOf(new Date(now.getFullYear(), now.getMonth() + 1, 1))
+  };
+};
+
+// Months from the first to the last of the given "yyyy-MM" keys, at least one
+const monthsSpanned = (monthKeys: string[]): number => {
+  if (monthKeys.length === 0) return 1;
+  const sorted = [...monthKeys].sort();
+  const [firstYear, firstMonth] = sorted[0].split('-').map(Number);
+  const [lastYear, lastMonth] = sorted[sorted.length - 1].split('-').map(Number);
+  return Math.max(1, (lastYear - firstYear) * 12 + (lastMonth - firstMonth) + 1);
+};
+
+// Native per-month totals for the charted months, converted from centavos once
+const loadMonthlyTotals = async (): Promise<Record<string, MonthTotals>> => {
+  const rows = await HybridBankNotifications.getMonthlyTotals(historyRange());
+  const out: Record<string, MonthTotals> = {};
+  for (const row of rows) out[row.month] = { received: row.receivedCents / 100, sent: row.sentCents / 100 };
+  return out;
+};
+
+// Native sent totals per contact over the same months
+const loadContactSpending = async (monthly: Record<string, MonthTotals>): Promise<SpendingSummary> => {
+  const rows = await HybridBankNotifications.getContactTotals(historyRange());
+  const contacts: ContactSpending[] = rows
+    .filter((row) => row.sentCount > 0)
+    .map((row) => ({ contact: row.contact || 'Desconhecido', amount: row.sentCents / 100, count: row.sentCount }));
+  return { contacts, months: monthsSpanned(Object.keys(monthly).filter((month) => monthly[month].sent > 0)) };
+};
+
+// The browser build's equivalent, in one pass over the history
+const summarizeSpending = (transactions: Transaction[]): SpendingSummary => {
+  const byContact = new Map<string, ContactSpending>();
+  const months = new Set<string>();
+  for (const t of transactions) {
+    if (t.type !== 'sent') continue;
+    const entry = byContact.get(t.contact) ?? { contact: t.contact, amount: 0, count: 0 };
+    entry.amount += t.amount;
+    entry.count++;
+    byContact.set(t.contact, entry);
+    months.add(monthKeyOf(t.date));
+  }
+  return { contacts: [...byContact.values()], months: monthsSpanned([...months]) };
+};
+
 interface StoredTransaction {
   id: string;
   type: 'received' | 'sent';
@@ -29,10 +94,15 @@ const loadStored = (): Transaction[] => {
 };
 
 const persist = (txs: Transaction[]) => {
+  if (useNativeStore) return; // captures are written natively; edits go through the plugin
   const serializable = txs.map((t) => ({ ...t, date: t.date.toISOString() }));
   localStorage.setItem(STORAGE_KEY, JSON.stringify(serializable));
 };
 
+// Prefer the exact centavos from the native side when present
+const eventAmount = (ev: BankTransactionEvent): number =>
+  ev.amountCents != null ? ev.amountCents / 100 : ev.amount || 0;
+
 const parseTransactionString = (description: string | undefined): { amount?: number; merchant?: string; date?: Date } => {
   if (!description) return {};
   
@@ -73,8 +143,89 @@ const parseTransactionString = (description: string | undefined): { amount?: num
   };
 };
 
+const toTransaction = (ev: BankTransactionEvent): Transaction => {
+  const parsed = parseTransactionString(ev.description);
+  return {
+    id: ev.id,
+    type: ev.type,
+    amount: Math.round((parsed.amount || eventAmount(ev)) * 100) / 100,
+    date: parsed.date || new Date(ev.date || Date.now()),
+    contact: parsed.merchant || ev.contact || 'Desconhecido',
+    description: ev.description,
+    ...(ev.category ? { category: ev.category as Transaction['category'] } : {})
+  };
+};
+
+const mergeTransactions = (prev: Transaction[], toAdd: Transaction[]): Transaction[] => {
+  // More efficient deduplication using Set
+  const seenKeys = new Set<string>();
+  return [...toAdd, ...prev]
+    .filter(t => {
+      const key = `${t.id}-${t.date.getTime()}`;
+      if (seenKeys.has(key)) {
+        return false;
+      }
+      seenKeys.add(key);
+      return true;
+    })
+    .sort((a, b) => b.date.getTime() - a.date.getTime());
+};
+
+// monthOffset 0 is the current month, -1 the previous one
+const loadMonth = async (monthOffset: number): Promise<Transaction[]> => {
+  const now = new Date();
+  const from = new Date(now.getFullYear(), now.getMonth() + monthOffset, 1).getTime();
+  const to = new Date(now.getFullYear(), now.getMonth() + monthOffset + 1, 1).getTime();
+  const out: Transaction[] = [];
+  let cursor: string | undefined;
+  do {
+    const page = await HybridBankNotifications.queryTransactions({ from, to, cursor, limit: PAGE_SIZE });
+    out.push(...page.transactions.map(toTransaction));
+    cursor = page.nextCursor;
+  } while (cursor);
+  return out;
+};
+
+// Moves the history older versions kept in localStorage into the native store, once
+const migrateLocalHistory = async () => {
+  const legacy = loadStored();
+  if (legacy.length > 0) {
+    await HybridBankNotifications.importTransactions(legacy.map((t) => ({
+      id: t.id,
+      type: t.type,
+      amount: t.amount,
+      date: t.date.getTime(),
+      contact: t.contact,
+      description: t.description,
+      category: t.category
+    })));
+  }
+  localStorage.removeItem(STORAGE_KEY);
+};
+
 export const useTransactions = () => {
-  const [transactions, setTransactions] = useState<Transaction[]>(loadStored());
+  const [transactions, setTransactions] = useState<Transaction[]>(useNativeStore ? [] : loadStored());
+  // Null until the native totals arrive, and always in the browser build
+  const [monthlyTotals, setMonthlyTotals] = useState<Record<string, MonthTotals> | null>(null);
+  const [nativeSpending, setNativeSpending] = useState<SpendingSummary | null>(null);
+
+  const refreshTotals = () => {
+    if (!useNativeStore) return;
+    loadMonthlyTotals()
+      .then(async (monthly) => {
+        setMonthlyTotals(monthly);
+        setNativeSpending(await loadContactSpending(monthly));
+      })
+      .catch((error) => {
+        console.error('Failed to load totals:', error);
+      });
+  };
+
+  // Sent totals per contact for the spending categories; null until the native totals arrive
+  const contactSpending = useMemo(
+    () => (useNativeStore ? nativeSpending : summarizeSpending(transactions)),
+    [nativeSpending, transactions]
+  );
   
   useEffect(() => {
     let cleanup: (() => void) | undefined;
@@ -88,60 +239,60 @@ export const useTransactions = () => {
         console.error('Failed to check permissions:', error);
       }
 
-      // Drain any backlog captured while the app was closed
+      if (useNativeStore) {
+        try {
+          if (localStorage.getItem(STORAGE_KEY) !== null) await migrateLocalHistory();
+        } catch (error) {
+          console.error('Failed to migrate local history:', error);
+        }
+        // Newest month first so the current month renders before older ones arrive
+        for (let offset = 0; offset > -HISTORY_MONTHS; offset--) {
+          try {
+            const month = await loadMonth(offset);
+            setTransactions((prev) => mergeTransactions(prev, month));
+          } catch (error) {
+            console.error('Failed to load transactions:', error);
+            break;
+          }
+        }
+      }
+
+      // Catch up on events captured while the app was closed, one bounded page at a time.
+      // A page is acknowledged only after it is committed, so a crash in between replays it.
       try {
-        const res = await HybridBankNotifications.drainBacklog();
-        const events = res?.events ?? [];
-        if (events.length > 0) {
-          setTransactions((prev) => {
-            const toAdd: Transaction[] = events.map((ev) => {
-              const parsed = parseTransactionString(ev.description);
-              return {
-                id: ev.id,
-                type: ev.type,
-                amount: Math.round((parsed.amount || ev.amount || 0) * 100) / 100,
-                date: parsed.date || new Date(ev.date || Date.now()),
-                contact: parsed.merchant || ev.contact || 'Desconhecido',
-                description: ev.description
-              };
+        let cursor = 0;
+        let hasMore = true;
+        while (hasMore) {
+          const page = await HybridBankNotifications.readSince(cursor, FEED_PAGE_SIZE);
+          const events = page?.events ?? [];
+          if (events.length > 0) {
+            setTransactions((prev) => {
+              const merged = mergeTransactions(prev, events.map(toTransaction));
+              persist(merged);
+              return merged;
             });
-            // More efficient deduplication using Set
-            const seenKeys = new Set<string>();
-            const merged = [...toAdd, ...prev]
-              .filter(t => {
-                const key = `${t.id}-${t.date.getTime()}`;
-                if (seenKeys.has(key)) {
-                  return false;
-                }
-                seenKeys.add(key);
-                return true;
-              })
-              .sort((a, b) => b.date.getTime() - a.date.getTime());
-            persist(merged);
-            return merged;
-          });
+          }
+          if (page.cursor > cursor) await HybridBankNotifications.ack(page.cursor);
+          cursor = page.cursor;
+          hasMore = page.hasMore;
         }
       } catch (error) {
-        console.error('Failed to drain backlog:', error);
+        console.error('Failed to read event feed:', error);
       }
+      refreshTotals();
 
       // Live updates while app is running
       try {
-        const listenerResult = await HybridBankNotifications.addListener('bankTransaction', (ev: BankTransactionEvent) => {
-          const parsed = parseTransactionString(ev.description);
-          const newTx: Transaction = {
-            id: ev.id,
-            type: ev.type,
-            amount: Math.round((parsed.amount || ev.amount || 0) * 100) / 100,
-            date: parsed.date || new Date(ev.date || Date.now()),
-            contact: parsed.merchant || ev.contact || 'Desconhecido',
-            description: ev.description
-          };
+        // One state update and one persist per batch, however many captures it carries
+        const listenerResult = await HybridBankNotifications.addListener('bankTransactions', (batch) => {
+          const events = batch?.events ?? [];
+          if (events.length === 0) return;
           setTransactions((prev) => {
-            const next = [newTx, ...prev].sort((a, b) => b.date.getTime() - a.date.getTime());
+            const next = mergeTransactions(prev, events.map(toTransaction));
             persist(next);
             return next;
           });
+          refreshTotals();
         });
         cleanup = listenerResult.remove;
       } catch (error) {
@@ -194,27 +345,37 @@ export const useTransactions = () => {
 
     // Generate exactly 5 months: 2 previous + current + 2 future
     for (let i = 0; i < 5; i++) {
-      const monthKey = cursor.toISOString().substring(0, 7);
+      const monthKey = monthKeyOf(cursor);
       const monthName = cursor.toLocaleDateString('pt-BR', { month: 'short', year: 'numeric' });
       monthlyData[monthKey] = { month: monthName, received: 0, sent: 0 };
       cursor.setMonth(cursor.getMonth() + 1);
     }
     
-    // Aggregate transactions into the months
-    transactions.forEach(t => {
-      const monthKey = t.date.toISOString().substring(0, 7);
-      if (monthlyData[monthKey]) {
-        if (t.type === 'received') {
-          monthlyData[monthKey].received += t.amount;
-        } else {
-          monthlyData[monthKey].sent += t.amount;
+    if (monthlyTotals) {
+      // Kept up to date natively, so this is a lookup per month rather than a pass over the history
+      Object.entries(monthlyTotals).forEach(([monthKey, totals]) => {
+        if (monthlyData[monthKey]) {
+          monthlyData[monthKey].received = totals.received;
+          monthlyData[monthKey].sent = totals.sent;
         }
-      }
-    });
+      });
+    } else {
+      // Aggregate transactions into the months
+      transactions.forEach(t => {
+        const monthKey = monthKeyOf(t.date);
+        if (monthlyData[monthKey]) {
+          if (t.type === 'received') {
+            monthlyData[monthKey].received += t.amount;
+          } else {
+            monthlyData[monthKey].sent += t.amount;
+          }
+        }
+      });
+    }
 
     // Add expected income from income sources for current and future months
     if (incomeSources && getMonthlyAmountFromSource) {
-      const currentMonthKey = now.toISOString().substring(0, 7);
+      const currentMonthKey = monthKeyOf(now);
       const currentMonthIndex = Object.keys(monthlyData).sort().indexOf(currentMonthKey);
       
       if (currentMonthIndex >= 0) {
@@ -307,11 +468,23 @@ export const useTransactions = () => {
   };
   
   const clearTransactions = () => {
+    if (useNativeStore) {
+      HybridBankNotifications.clearTransactions().then(refreshTotals).catch((error) => {
+        console.error('Failed to clear transactions:', error);
+      });
+    }
     setTransactions([]);
+    setMonthlyTotals(null);
+    setNativeSpending(null);
     localStorage.removeItem(STORAGE_KEY);
   };
 
   const deleteTransaction = (id: string) => {
+    if (useNativeStore) {
+      HybridBankNotifications.deleteTransaction(id).then(refreshTotals).catch((error) => {
+        console.error('Failed to delete transaction:', error);
+      });
+    }
     setTransactions(prev => {
       const updated = prev.filter(t => t.id !== id);
       persist(updated);
@@ -320,6 +493,11 @@ export const useTransactions = () => {
   };
 
   const updateTransactionCategory = (id: string, category: Transaction['category']) => {
+    if (useNativeStore) {
+      HybridBankNotifications.updateCategory(id, category).catch((error) => {
+        console.error('Failed to update category:', error);
+      });
+    }
     setTransactions(prev => {
       const updated = prev.map(t => 
         t.id === id ? { ...t, category } : t
@@ -336,6 +514,7 @@ export const useTransactions = () => {
     getReceivedCurrentMonth,
     getSentCurrentMonth,
     getMonthlyData,
+    contactSpending,
     clearTransactions,
     deleteTransaction,
     updateTransactionCategory
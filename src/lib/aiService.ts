@@ -9,10 +9,22 @@ export interface SpendingCategory {
   category: string;
   amount: number;
   percentage: number;
-  transactions: Transaction[];
+  count: number;
   monthlyAverage: number;
 }
 
+// What was sent to one contact, summed natively on device
+export interface ContactSpending {
+  contact: string;
+  amount: number;
+  count: number;
+}
+
+export interface SpendingSummary {
+  contacts: ContactSpending[];
+  months: number; // months the spending spans, for the monthly averages
+}
+
 export interface InvestmentInsight {
   recommendedSavings: number;
   savingsPercentage: number;
@@ -27,26 +39,16 @@ export interface InvestmentInsight {
 export class AIService {
   private model = genAI.getGenerativeModel({ model: 'gemini-pro' });
 
-  async categorizeTransactions(transactions: Transaction[]): Promise<SpendingCategory[]> {
-    if (transactions.length === 0) return [];
+  async categorizeSpending({ contacts, months }: SpendingSummary): Promise<SpendingCategory[]> {
+    if (contacts.length === 0) return [];
 
-    // Filter only sent (expense) transactions
-    const expenses = transactions.filter(t => t.type === 'sent');
-    
-    if (expenses.length === 0) return [];
-
-    // Group transactions by contact to analyze patterns
-    const contactGroups = expenses.reduce((acc, t) => {
-      if (!acc[t.contact]) acc[t.contact] = [];
-      acc[t.contact].push(t);
-      return acc;
-    }, {} as Record<string, Transaction[]>);
+    const byContact = new Map(contacts.map(c => [c.contact, c]));
 
     try {
       const prompt = `
 Analise os seguintes contatos e categorize-os em setores de gastos. Para cada contato, forneça apenas uma categoria principal baseada no nome/tipo de estabelecimento:
 
-Contatos: ${Object.keys(contactGroups).join(', ')}
+Contatos: ${contacts.map(c => c.contact).join(', ')}
 
 Categorias possíveis:
 - Alimentação (restaurantes, delivery, mercados)
@@ -75,40 +77,22 @@ Responda APENAS no formato JSON:
       const parsed = JSON.parse(cleanText);
       
       // Group by categories
-      const categoryGroups: Record<string, Transaction[]> = {};
+      const categoryGroups: Record<string, ContactSpending[]> = {};
       
       Object.entries(parsed.categories).forEach(([contact, category]) => {
         const categoryName = category as string;
-        if (contactGroups[contact]) {
+        const spending = byContact.get(contact);
+        if (spending) {
           if (!categoryGroups[categoryName]) categoryGroups[categoryName] = [];
-          categoryGroups[categoryName].push(...contactGroups[contact]);
+          categoryGroups[categoryName].push(spending);
         }
       });
 
-      // Calculate totals and create spending categories
-      const totalAmount = expenses.reduce((sum, t) => sum + t.amount, 0);
-      
-      const categories: SpendingCategory[] = Object.entries(categoryGroups).map(([category, txs]) => {
-        const amount = txs.reduce((sum, t) => sum + t.amount, 0);
-        
-        // Calculate monthly average based on transaction dates
-        const monthsSpan = this.getMonthsSpan(txs);
-        const monthlyAverage = monthsSpan > 0 ? amount / monthsSpan : amount;
-        
-        return {
-          category,
-          amount,
-          percentage: (amount / totalAmount) * 100,
-          transactions: txs,
-          monthlyAverage
-        };
-      }).sort((a, b) => b.amount - a.amount);
-
-      return categories;
+      return this.toCategories(categoryGroups, contacts, months);
     } catch (error) {
-      console.error('Error categorizing transactions:', error);
+      console.error('Error categorizing spending:', error);
       // Fallback: simple categorization by keywords
-      return this.fallbackCategorization(expenses);
+      return this.fallbackCategorization(contacts, months);
     }
   }
 
@@ -254,27 +238,35 @@ Responda APENAS no formato JSON:
     }
   }
 
-  private getMonthsSpan(transactions: Transaction[]): number {
-    if (transactions.length === 0) return 1;
-    
-    const dates = transactions.map(t => t.date).sort((a, b) => a.getTime() - b.getTime());
-    const firstDate = dates[0];
-    const lastDate = dates[dates.length - 1];
-    
-    const monthsDiff = (lastDate.getFullYear() - firstDate.getFullYear()) * 12 + 
-                      (lastDate.getMonth() - firstDate.getMonth()) + 1;
-    
-    return Math.max(1, monthsDiff);
+  // Totals and shares per category, largest first
+  private toCategories(categoryGroups: Record<string, ContactSpending[]>, contacts: ContactSpending[],
+                       months: number): SpendingCategory[] {
+    const totalAmount = contacts.reduce((sum, c) => sum + c.amount, 0);
+
+    return Object.entries(categoryGroups)
+      .filter(([, group]) => group.length > 0)
+      .map(([category, group]) => {
+        const amount = group.reduce((sum, c) => sum + c.amount, 0);
+
+        return {
+          category,
+          amount,
+          percentage: (amount / totalAmount) * 100,
+          count: group.reduce((sum, c) => sum + c.count, 0),
+          monthlyAverage: amount / Math.max(1, months)
+        };
+      })
+      .sort((a, b) => b.amount - a.amount);
   }
 
-  private fallbackCategorization(expenses: Transaction[]): SpendingCategory[] {
-    const categories: Record<string, Transaction[]> = {
+  private fallbackCategorization(contacts: ContactSpending[], months: number): SpendingCategory[] {
+    const categories: Record<string, ContactSpending[]> = {
       'Outros': []
     };
 
     // Simple keyword-based categorization
-    expenses.forEach(t => {
-      const contact = t.contact.toLowerCase();
+    contacts.forEach(spending => {
+      const contact = spending.contact.toLowerCase();
       let category = 'Outros';
 
       if (contact.includes('restaurante') || contact.includes('food') || contact.includes('lanche') || 
@@ -290,26 +282,10 @@ Responda APENAS no formato JSON:
       }
 
       if (!categories[category]) categories[category] = [];
-      categories[category].push(t);
+      categories[category].push(spending);
     });
 
-    const totalAmount = expenses.reduce((sum, t) => sum + t.amount, 0);
-
-    return Object.entries(categories)
-      .filter(([, txs]) => txs.length > 0)
-      .map(([category, txs]) => {
-        const amount = txs.reduce((sum, t) => sum + t.amount, 0);
-        const monthsSpan = this.getMonthsSpan(txs);
-        
-        return {
-          category,
-          amount,
-          percentage: (amount / totalAmount) * 100,
-          transactions: txs,
-          monthlyAverage: amount / monthsSpan
-        };
-      })
-      .sort((a, b) => b.amount - a.amount);
+    return this.toCategories(categories, contacts, months);
   }
 }
 
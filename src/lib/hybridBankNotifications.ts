@@ -4,31 +4,85 @@ export type BankTransactionEvent = {
   id: string;
   type: 'received' | 'sent';
   amount: number;
+  amountCents?: number; // exact integer centavos; amount is the same value as a float
   date: number; // epoch ms
   contact: string;
   description?: string;
+  sources?: string[]; // "channel:package" of every capture merged into this event
+  category?: string; // only on records read back from the native store
+};
+
+export type EventFeedPage = {
+  events: BankTransactionEvent[];
+  cursor: number; // pass to the next readSince, and to ack once the page is committed
+  hasMore: boolean;
+};
+
+export type TransactionQuery = {
+  from?: number; // epoch ms, inclusive
+  to?: number; // epoch ms, exclusive
+  type?: 'received' | 'sent';
+  contact?: string;
+  category?: string;
+  cursor?: string; // nextCursor of the previous page
+  limit?: number; // at most 500
+};
+
+export type TransactionPage = {
+  transactions: BankTransactionEvent[];
+  nextCursor?: string; // absent on the last page
+};
+
+// Kept natively as transactions are captured, recategorized or deleted; amounts in centavos
+export type Totals = {
+  receivedCents: number;
+  sentCents: number;
+  receivedCount: number;
+  sentCount: number;
+};
+
+export type MonthlyTotals = Totals & { month: string }; // "yyyy-MM" in the device's time zone
+export type CategoryTotals = Totals & { category: string }; // "" for uncategorized
+export type ContactTotals = Totals & { contact: string };
+
+export type MonthRange = {
+  fromMonth?: string; // "yyyy-MM", inclusive
+  toMonth?: string; // "yyyy-MM", exclusive
+};
+
+export type ServiceStatus = {
+  enabled: boolean;
+  notificationEnabled: boolean;
+  accessibilityEnabled: boolean;
 };
 
 export interface HybridBankNotificationsPlugin {
   addListener(eventName: 'bankTransaction', listenerFunc: (ev: BankTransactionEvent) => void): Promise<{ remove: () => void }>;
-  isEnabled(): Promise<{ 
-    enabled: boolean; 
-    notificationEnabled: boolean; 
-    accessibilityEnabled: boolean; 
-  }>;
+  // Captures arriving close together, delivered as one event
+  addListener(eventName: 'bankTransactions', listenerFunc: (batch: { events: BankTransactionEvent[] }) => void): Promise<{ remove: () => void }>;
+  // Fired when the user enables or disables either service in system settings
+  addListener(eventName: 'serviceStatusChanged', listenerFunc: (status: ServiceStatus) => void): Promise<{ remove: () => void }>;
+  isEnabled(): Promise<ServiceStatus>;
   openNotificationSettings(): Promise<void>;
   openAccessibilitySettings(): Promise<void>;
   requestNotificationPermission(): Promise<{ granted: boolean }>;
   requestAccessibilityPermission(): Promise<{ granted: boolean }>;
   getPermissionDebugInfo(): Promise<{
     packageName: string;
-    enabledListeners: string;
     notificationEnabled: boolean;
     accessibilityEnabled: boolean;
-    servicesRunning: boolean;
     serviceError?: string;
   }>;
-  drainBacklog(): Promise<{ events: BankTransactionEvent[] }>;
+  readSince(options: { cursor: number; limit?: number }): Promise<EventFeedPage>;
+  ack(options: { cursor: number }): Promise<void>;
+  queryTransactions(query: TransactionQuery): Promise<TransactionPage>;
+  updateCategory(options: { id: string; category?: string }): Promise<{ updated: boolean }>;
+  deleteTransaction(options: { id: string }): Promise<{ deleted: boolean }>;
+  clearTransactions(): Promise<{ deleted: number }>;
+  importTransactions(options: { transactions: BankTransactionEvent[] }): Promise<{ imported: number }>;
+  getMonthlyTotals(range: MonthRange): Promise<{ totals: MonthlyTotals[] }>;
+  getTotalsBy(options: MonthRange & { by: 'category' }): Promise<{ totals: CategoryTotals[] }>;
+  getTotalsBy(options: MonthRange & { by: 'contact' }): Promise<{ totals: ContactTotals[] }>;
 }
 
 const plugin = registerPlugin<HybridBankNotificationsPlugin>('HybridBankNotifications');
@@ -69,13 +123,20 @@ export const HybridBankNotifications = {
     } catch (error) {
       return {
         packageName: 'unknown',
-        enabledListeners: 'error',
         notificationEnabled: false,
         accessibilityEnabled: false,
-        servicesRunning: false,
         serviceError: String(error)
       };
     }
   },
-  drainBacklog: () => plugin.drainBacklog(),
+  readSince: (cursor: number, limit?: number) => plugin.readSince({ cursor, limit }),
+  ack: (cursor: number) => plugin.ack({ cursor }),
+  queryTransactions: (query: TransactionQuery) => plugin.queryTransactions(query),
+  updateCategory: (id: string, category?: string) => plugin.updateCategory({ id, category }),
+  deleteTransaction: (id: string) => plugin.deleteTransaction({ id }),
+  clearTransactions: () => plugin.clearTransactions(),
+  importTransactions: (transactions: BankTransactionEvent[]) => plugin.importTransactions({ transactions }),
+  getMonthlyTotals: async (range: MonthRange = {}) => (await plugin.getMonthlyTotals(range)).totals,
+  getCategoryTotals: async (range: MonthRange = {}) => (await plugin.getTotalsBy({ ...range, by: 'category' })).totals,
+  getContactTotals: async (range: MonthRange = {}) => (await plugin.getTotalsBy({ ...range, by: 'contact' })).totals,
 };
\ No newline at end of file
@@ -11,7 +11,7 @@ import { LineChart, Line, BarChart, Bar, PieChart, Pie, Cell, XAxis, YAxis, Cart
 
 const Charts = () => {
   const navigate = useNavigate();
-  const { getMonthlyData, transactions } = useTransactions();
+  const { getMonthlyData, contactSpending } = useTransactions();
   const { incomeSources, getMonthlyAmountFromSource } = useIncomeSources();
   const [spendingCategories, setSpendingCategories] = useState<SpendingCategory[]>([]);
   const [loadingCategories, setLoadingCategories] = useState(false);
@@ -20,10 +20,12 @@ const Charts = () => {
   const monthlyData = getMonthlyData(incomeSources, getMonthlyAmountFromSource);
 
   useEffect(() => {
+    if (!contactSpending || contactSpending.contacts.length === 0) return;
+
     const loadSpendingCategories = async () => {
       setLoadingCategories(true);
       try {
-        const categories = await aiService.categorizeTransactions(transactions);
+        const categories = await aiService.categorizeSpending(contactSpending);
         setSpendingCategories(categories);
       } catch (error) {
         console.error('Error loading spending categories:', error);
@@ -32,10 +34,8 @@ const Charts = () => {
       }
     };
 
-    if (transactions.length > 0) {
-      loadSpendingCategories();
-    }
-  }, [transactions]);
+    loadSpendingCategories();
+  }, [contactSpending]);
   
   const formatCurrency = (value: number) => {
     return new Intl.NumberFormat('pt-BR', {